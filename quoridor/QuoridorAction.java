@@ -2,12 +2,15 @@ package puzzles.quoridor;
 
 import game.core.Position;
 
-/** Union type for player actions. */
+/**
+ * Union type for player actions. Equality ignores the informational from field,
+ * matching the int codes of QuoridorActionTable.
+ */
 public final class QuoridorAction {
     public enum Type { MOVE, WALL_H, WALL_V }
 
     public final Type type;
-    public final Position from; // only for MOVE (current pawn pos)
+    public final Position from; // only for MOVE (current pawn pos; null for interned moves)
     public final Position to;   // only for MOVE (destination cell)
     public final int r, c;      // top-left cell of wall anchor
 
@@ -25,9 +28,21 @@ public final class QuoridorAction {
         return new QuoridorAction(Type.WALL_V, null, null, r, c);
     }
 
+    @Override public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof QuoridorAction)) return false;
+        QuoridorAction a = (QuoridorAction) o;
+        if (type != a.type) return false;
+        return (type == Type.MOVE) ? (to == a.to || to.equals(a.to)) : (r == a.r && c == a.c);
+    }
+
+    @Override public int hashCode() {
+        return (type == Type.MOVE) ? to.hashCode() : 31 * (31 * type.ordinal() + r) + c;
+    }
+
     @Override public String toString() {
         switch (type) {
-            case MOVE:   return "move " + from + "->" + to;
+            case MOVE:   return (from == null) ? "move " + to : "move " + from + "->" + to;
             case WALL_H: return "wall h " + r + " " + c;
             case WALL_V: return "wall v " + r + " " + c;
             default:     return "action(?)";
@@ -0,0 +1,66 @@
+package puzzles.quoridor;
+
+/**
+ * Canonical int codes and interned QuoridorAction instances for one board size.
+ * With n = rows * cols and i = r * cols + c:
+ *   MOVE to (r,c)            code i
+ *   WALL_H anchored at (r,c) code n + i
+ *   WALL_V anchored at (r,c) code 2n + i
+ * Codes are dense in [0, size()), so they index primitive arrays directly (move
+ * lists, history tables, game logs). Converting either way allocates nothing.
+ */
+public final class QuoridorActionTable {
+    public final int rows;
+    public final int cols;
+    private final int cells;
+    private final QuoridorAction[] actions;
+
+    /** Built once per board size by QuoridorPositions. */
+    QuoridorActionTable(QuoridorPositions positions) {
+        this.rows = positions.rows;
+        this.cols = positions.cols;
+        this.cells = rows * cols;
+        this.actions = new QuoridorAction[3 * cells];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int i = r * cols + c;
+                actions[i] = QuoridorAction.move(null, positions.at(i));
+                actions[cells + i] = QuoridorAction.wallH(r, c);
+                actions[2 * cells + i] = QuoridorAction.wallV(r, c);
+            }
+        }
+    }
+
+    /** Shared table for a board size (see QuoridorPositions.of). */
+    public static QuoridorActionTable of(int rows, int cols) { return QuoridorPositions.of(rows, cols).actions; }
+
+    public static QuoridorActionTable of(QuoridorState s) { return of(s.rows, s.cols); }
+
+    /** Number of codes: 3 * rows * cols. */
+    public int size() { return actions.length; }
+
+    public int moveCode(int r, int c)  { return r * cols + c; }
+    public int wallHCode(int r, int c) { return cells + r * cols + c; }
+    public int wallVCode(int r, int c) { return 2 * cells + r * cols + c; }
+
+    /** Code of a (possibly non-interned) action; -1 if it does not fit this board. */
+    public int code(QuoridorAction a) {
+        int r = (a.type == QuoridorAction.Type.MOVE) ? a.to.r : a.r;
+        int c = (a.type == QuoridorAction.Type.MOVE) ? a.to.c : a.c;
+        if (r < 0 || r >= rows || c < 0 || c >= cols) return -1;
+        switch (a.type) {
+            case MOVE:   return moveCode(r, c);
+            case WALL_H: return wallHCode(r, c);
+            case WALL_V: return wallVCode(r, c);
+            default:     return -1;
+        }
+    }
+
+    /** Interned action for a code. */
+    public QuoridorAction action(int code) { return actions[code]; }
+
+    public boolean isMove(int code) { return code < cells; }
+
+    /** Cell index (r * cols + c) of a move destination or wall anchor. */
+    public int cell(int code) { return code % cells; }
+}
@@ -0,0 +1,170 @@
+package puzzles.quoridor;
+
+import java.util.Arrays;
+
+/**
+ * Goal-distance maps for QuoridorState: one multi-source BFS to build a map, then
+ * incremental repair when walls change so that only cells whose distance changes
+ * are visited.
+ *
+ * Placing a wall only deletes edges, so distances only grow. A cell needs repair when
+ * no neighbor is one step closer to the goal. Such cells are collected by propagating
+ * outward from the four cells around the wall, then re-labelled by a small Dijkstra
+ * seeded from their unaffected neighbors. Removing a wall (undo) only shrinks
+ * distances, which a Dijkstra from the four cells around it handles.
+ *
+ * Scratch buffers are per thread, so repairs allocate nothing after warm-up.
+ */
+final class QuoridorDistances {
+    private QuoridorDistances() {}
+
+    private static final class Scratch {
+        int[] mark = new int[0];   // == stamp: cell is in the affected set
+        int stamp;
+        int[] list = new int[0];   // affected cells
+        int[] work = new int[0];   // phase-1 worklist
+        long[] heap = new long[0]; // (dist << 32 | cell) min-heap
+        int heapSize;
+
+        void fit(int n) {
+            if (mark.length < n) {
+                mark = new int[n]; stamp = 0;
+                list = new int[n]; work = new int[4 * n + 4]; heap = new long[5 * n + 4];
+            }
+            if (++stamp == 0) { Arrays.fill(mark, 0); stamp = 1; }
+            heapSize = 0;
+        }
+
+        void push(int d, int cell) {
+            int i = heapSize++;
+            long x = ((long) d << 32) | cell;
+            while (i > 0) {
+                int p = (i - 1) >>> 1;
+                if (heap[p] <= x) break;
+                heap[i] = heap[p];
+                i = p;
+            }
+            heap[i] = x;
+        }
+
+        long pop() {
+            long top = heap[0], x = heap[--heapSize];
+            int i = 0;
+            while (true) {
+                int l = 2 * i + 1;
+                if (l >= heapSize) break;
+                int m = (l + 1 < heapSize && heap[l + 1] < heap[l]) ? l + 1 : l;
+                if (heap[m] >= x) break;
+                heap[i] = heap[m];
+                i = m;
+            }
+            if (heapSize > 0) heap[i] = x;
+            return top;
+        }
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+        @Override protected Scratch initialValue() { return new Scratch(); }
+    };
+
+    /** Fresh map: multi-source BFS from every cell of goalRow. */
+    static int[] compute(QuoridorState s, int goalRow) {
+        int n = s.rows * s.cols;
+        int[] dist = new int[n];
+        int[] queue = new int[n];
+        Arrays.fill(dist, QuoridorState.UNREACHABLE);
+        int head = 0, tail = 0;
+        for (int c = 0; c < s.cols; c++) {
+            int i = goalRow * s.cols + c;
+            dist[i] = 0;
+            queue[tail++] = i;
+        }
+        while (head < tail) {
+            int i = queue[head++];
+            for (int d = 0; d < 4; d++) {
+                int j = s.step(i, d);
+                if (j >= 0 && dist[j] == QuoridorState.UNREACHABLE) { dist[j] = dist[i] + 1; queue[tail++] = j; }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Repair dist after a wall anchored at cell a (either orientation) was placed;
+     * s already has the new wall bits. The cut edges all touch a, a+1, a+cols, a+cols+1.
+     */
+    static void afterCut(QuoridorState s, int[] dist, int a) {
+        final int U = QuoridorState.UNREACHABLE;
+        int cols = s.cols;
+        Scratch sc = SCRATCH.get();
+        sc.fit(s.rows * cols);
+        int[] mark = sc.mark, list = sc.list, work = sc.work;
+        int stamp = sc.stamp, count = 0, top = 0;
+        work[top++] = a; work[top++] = a + 1; work[top++] = a + cols; work[top++] = a + cols + 1;
+
+        // Phase 1: collect cells left without a neighbor one step closer to the goal
+        while (top > 0) {
+            int u = work[--top];
+            int du = dist[u];
+            if (mark[u] == stamp || du == 0 || du == U) continue;
+            boolean supported = false;
+            for (int d = 0; d < 4 && !supported; d++) {
+                int w = s.step(u, d);
+                supported = w >= 0 && mark[w] != stamp && dist[w] == du - 1;
+            }
+            if (supported) continue;
+            mark[u] = stamp;
+            list[count++] = u;
+            for (int d = 0; d < 4; d++) {
+                int w = s.step(u, d);
+                if (w >= 0 && mark[w] != stamp && dist[w] == du + 1) work[top++] = w;
+            }
+        }
+        if (count == 0) return;
+
+        // Phase 2: relabel the affected cells from their unaffected neighbors, Dijkstra-style
+        for (int k = 0; k < count; k++) {
+            int u = list[k], best = U;
+            for (int d = 0; d < 4; d++) {
+                int w = s.step(u, d);
+                if (w >= 0 && mark[w] != stamp && dist[w] != U && dist[w] + 1 < best) best = dist[w] + 1;
+            }
+            dist[u] = best;
+            if (best != U) sc.push(best, u);
+        }
+        while (sc.heapSize > 0) {
+            long x = sc.pop();
+            int du = (int) (x >>> 32), u = (int) x;
+            if (du != dist[u]) continue;
+            for (int d = 0; d < 4; d++) {
+                int w = s.step(u, d);
+                if (w >= 0 && mark[w] == stamp && dist[w] > du + 1) { dist[w] = du + 1; sc.push(du + 1, w); }
+            }
+        }
+    }
+
+    /** Repair dist after the wall anchored at cell a was removed; distances can only shrink. */
+    static void afterRestore(QuoridorState s, int[] dist, int a) {
+        final int U = QuoridorState.UNREACHABLE;
+        int cols = s.cols;
+        Scratch sc = SCRATCH.get();
+        sc.fit(s.rows * cols);
+        for (int k = 0; k < 4; k++) {
+            int u = a + (k & 1) + (k >> 1) * cols; // a, a+1, a+cols, a+cols+1
+            for (int d = 0; d < 4; d++) {
+                int w = s.step(u, d);
+                if (w >= 0 && dist[w] != U && dist[w] + 1 < dist[u]) dist[u] = dist[w] + 1;
+            }
+            if (dist[u] != U) sc.push(dist[u], u);
+        }
+        while (sc.heapSize > 0) {
+            long x = sc.pop();
+            int du = (int) (x >>> 32), u = (int) x;
+            if (du != dist[u]) continue;
+            for (int d = 0; d < 4; d++) {
+                int w = s.step(u, d);
+                if (w >= 0 && dist[w] > du + 1) { dist[w] = du + 1; sc.push(du + 1, w); }
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package puzzles.quoridor;
+
+import java.util.Arrays;
+
+/**
+ * Exact solver for the pure race that starts once both players are out of walls.
+ * The wall layout is then fixed, so the game is a graph over (P1 cell, P2 cell, side
+ * to move) with at most 2 * (rows * cols)^2 nodes. Pawn moves come from
+ * QuoridorMoveTable, so jumps, side-steps and one pawn blocking the other are all
+ * accounted for exactly.
+ *
+ * The whole graph is solved at once by retrograde analysis: positions where a pawn
+ * stands on its goal row are losses for the side to move, a position with a move to
+ * a loss is a win, and a position whose moves all lead to wins is a loss. Working
+ * outward in order of distance yields the number of plies under optimal play (the
+ * winner hurries, the loser delays). Positions never resolved can be held forever by
+ * both sides and are draws. Tables for the last few wall layouts are kept, as many as
+ * fit in CACHE_BYTES, so every position with one of those layouts is answered by a lookup.
+ *
+ * The table has 2 * (rows * cols)^2 entries, so the solver only takes boards up to
+ * MAX_STATES of them (13x13 and smaller squares); larger boards are left to search.
+ *
+ * Instances hold the tables, so use one per thread.
+ */
+public final class QuoridorEndgame {
+    public static final int WIN = 1, DRAW = 0, LOSS = -1;
+
+    private static final byte UNKNOWN = 0, WON = 1, LOST = 2;
+
+    /** Largest table solved: 2 * (rows * cols)^2 states, a few milliseconds to solve. */
+    static final int MAX_STATES = 1 << 16;
+    /** Memory for solved tables (5 bytes per state each); sets how many layouts are kept. */
+    private static final int CACHE_BYTES = 2 << 20;
+
+    private int rows = -1, cols = -1, cells;
+    // Solved tables for the most recent wall layouts, replaced round-robin
+    private long[][] keyH = new long[0][], keyV = new long[0][];
+    private byte[][] results = new byte[0][];
+    private int[][] pliesBySlot = new int[0][];
+    private int used, next;
+    private byte[] result;                            // table of the current layout
+    private int[] plies;
+    private int[] left = new int[0];                  // unresolved successors per state
+    private int[] predStart = new int[0], pred = new int[0];
+    private int[] queue = new int[0];
+    private long nanosPerState = 200;                 // measured by each solve; starts pessimistic (cold JIT)
+
+    /** True when s is in the phase this solver handles: no walls left on either side, on a board that fits. */
+    public static boolean applies(QuoridorState s) { return s.walls1 == 0 && s.walls2 == 0 && fits(s); }
+
+    /** True if s's board is small enough for the solver (see MAX_STATES). */
+    static boolean fits(QuoridorState s) {
+        long cells = (long) s.rows * s.cols;
+        return 2 * cells * cells <= MAX_STATES;
+    }
+
+    /** WIN, LOSS or DRAW for the side to move in s under optimal play (s must satisfy applies). */
+    public int outcome(QuoridorState s) {
+        int i = index(s);
+        return (result[i] == WON) ? WIN : (result[i] == LOST) ? LOSS : DRAW;
+    }
+
+    /** Plies until the game ends under optimal play, or -1 for a draw. */
+    public int plies(QuoridorState s) {
+        int i = index(s);
+        return (result[i] == UNKNOWN) ? -1 : plies[i];
+    }
+
+    /**
+     * An optimal pawn move for the side to move: the fastest win, the slowest loss, or
+     * a move that keeps a draw. Null if the game is over.
+     */
+    public QuoridorAction bestMove(QuoridorState s) {
+        ensure(s);
+        int p1 = s.p1.r * cols + s.p1.c, p2 = s.p2.r * cols + s.p2.c;
+        if (terminal(p1, p2)) return null;
+        int me = (s.turn == 1) ? p1 : p2, opp = (s.turn == 1) ? p2 : p1;
+        int best = -1, bestKey = Integer.MIN_VALUE;
+        for (int mask = QuoridorMoveTable.destinations(s, me, opp); mask != 0; mask &= mask - 1) {
+            int b = Integer.numberOfTrailingZeros(mask);
+            int to = me + QuoridorMoveTable.dr(b) * cols + QuoridorMoveTable.dc(b);
+            int j = (s.turn == 1) ? state(2, to, p2) : state(1, p1, to);
+            int key;
+            if (result[j] == LOST) key = 2 * cells * cells - plies[j];                   // win, sooner is better
+            else if (result[j] == UNKNOWN) key = 0;                                      // draw
+            else key = -2 * cells * cells + plies[j];                                   // loss, later is better
+            if (key > bestKey) { bestKey = key; best = to; }
+        }
+        return QuoridorActionTable.of(rows, cols).action(best);
+    }
+
+    private int index(QuoridorState s) {
+        ensure(s);
+        return state(s.turn, s.p1.r * cols + s.p1.c, s.p2.r * cols + s.p2.c);
+    }
+
+    private int state(int turn, int p1, int p2) { return ((turn - 1) * cells + p1) * cells + p2; }
+
+    private boolean terminal(int p1, int p2) { return p1 / cols == rows - 1 || p2 / cols == 0; }
+
+    /** True if the table for s's wall layout is already solved, so outcome(s) is a lookup. */
+    boolean cached(QuoridorState s) {
+        if (rows != s.rows || cols != s.cols) return false;
+        for (int k = 0; k < used; k++) {
+            if (Arrays.equals(keyH[k], s.hBits) && Arrays.equals(keyV[k], s.vBits)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * True if outcome(s) can be answered before deadline (a System.nanoTime value): the
+     * layout is cached, or solving it at the last measured rate would finish in time.
+     */
+    boolean ready(QuoridorState s, long deadline) {
+        if (cached(s)) return true;
+        long cells = (long) s.rows * s.cols;
+        return System.nanoTime() + 2 * cells * cells * nanosPerState < deadline;
+    }
+
+    /** Make result / plies the table for s's wall layout, solving it unless it is cached. */
+    private void ensure(QuoridorState s) {
+        if (rows != s.rows || cols != s.cols) {
+            rows = s.rows;
+            cols = s.cols;
+            cells = rows * cols;
+            used = next = 0;
+            int slots = Math.max(1, CACHE_BYTES / (5 * 2 * cells * cells));
+            keyH = new long[slots][];
+            keyV = new long[slots][];
+            results = new byte[slots][];
+            pliesBySlot = new int[slots][];
+        }
+        for (int k = 0; k < used; k++) {
+            if (Arrays.equals(keyH[k], s.hBits) && Arrays.equals(keyV[k], s.vBits)) {
+                result = results[k];
+                plies = pliesBySlot[k];
+                return;
+            }
+        }
+        long start = System.nanoTime();
+        int states = 2 * cells * cells;
+        int slot = next;
+        next = (next + 1) % results.length;
+        used = Math.max(used, slot + 1);
+        keyH[slot] = s.hBits.clone();
+        keyV[slot] = s.vBits.clone();
+        if (results[slot] == null) { results[slot] = new byte[states]; pliesBySlot[slot] = new int[states]; }
+        result = results[slot];
+        plies = pliesBySlot[slot];
+        if (left.length < states) {
+            left = new int[states];
+            predStart = new int[states + 1];
+            queue = new int[states];
+        }
+        Arrays.fill(result, 0, states, UNKNOWN);
+        buildPredecessors(s, states);
+
+        // Seed with the finished positions: whoever is to move there has lost
+        int head = 0, tail = 0;
+        for (int i = 0; i < states; i++) {
+            int p1 = (i / cells) % cells, p2 = i % cells;
+            if (p1 != p2 && terminal(p1, p2)) {
+                result[i] = LOST;
+                plies[i] = 0;
+                queue[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            int x = queue[head++];
+            for (int k = predStart[x]; k < predStart[x + 1]; k++) {
+                int p = pred[k];
+                if (result[p] != UNKNOWN) continue;
+                if (result[x] == LOST) {
+                    result[p] = WON;
+                } else if (--left[p] == 0) {
+                    result[p] = LOST;
+                } else {
+                    continue;
+                }
+                plies[p] = plies[x] + 1;
+                queue[tail++] = p;
+            }
+        }
+        nanosPerState = Math.max(1, (System.nanoTime() - start) / states);
+    }
+
+    /** Reverse move graph in CSR form (predStart / pred), plus the successor count per state in left. */
+    private void buildPredecessors(QuoridorState s, int states) {
+        Arrays.fill(predStart, 0, states + 1, 0);
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < states; i++) {
+                int turn = i / (cells * cells) + 1, p1 = (i / cells) % cells, p2 = i % cells;
+                if (pass == 0) left[i] = 0;
+                if (p1 == p2 || terminal(p1, p2)) continue;
+                int me = (turn == 1) ? p1 : p2, opp = (turn == 1) ? p2 : p1;
+                for (int mask = QuoridorMoveTable.destinations(s, me, opp); mask != 0; mask &= mask - 1) {
+                    int b = Integer.numberOfTrailingZeros(mask);
+                    int to = me + QuoridorMoveTable.dr(b) * cols + QuoridorMoveTable.dc(b);
+                    int j = (turn == 1) ? state(2, to, p2) : state(1, p1, to);
+                    if (pass == 0) { predStart[j + 1]++; left[i]++; }
+                    else pred[queue[j]++] = i;
+                }
+            }
+            if (pass == 0) {
+                for (int i = 0; i < states; i++) predStart[i + 1] += predStart[i];
+                if (pred.length < predStart[states]) pred = new int[predStart[states]];
+                System.arraycopy(predStart, 0, queue, 0, states); // fill cursors for pass 1
+            }
+        }
+    }
+}
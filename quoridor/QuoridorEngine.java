@@ -0,0 +1,311 @@
+package puzzles.quoridor;
+
+/**
+ * Computer player: iterative-deepening principal variation search (alpha-beta) under
+ * a wall-clock budget.
+ *
+ * The search walks one private copy of the position with QuoridorRules.applyInPlace /
+ * undo and generates action codes into per-ply buffers, so it allocates nothing per
+ * node. Each iteration after the first few starts with an aspiration window around
+ * the previous score. Moves are tried in QuoridorMoveOrdering order (TT move,
+ * path-shortening pawn moves, killers, history). Results go into a
+ * QuoridorTranspositionTable. Deepening stops
+ * early when there is a single legal move, a proven win or loss, or the budget runs
+ * out; the best move of the last completed iteration is returned.
+ *
+ * Evaluation is the path-length difference (opponent's goal distance minus the
+ * mover's), plus a small term for remaining walls and a half-step tempo bonus. Once
+ * both players are out of walls, positions on boards that QuoridorEndgame fits are
+ * scored exactly by it (larger boards keep searching the race); when only one player
+ * has walls, the root is first tried with QuoridorWallRace. Walls are limited to
+ * QuoridorWallCandidates.
+ *
+ * With threads > 1 the engine uses Lazy SMP: helper threads run the same iterative
+ * deepening on their own copies of the root, half of them one ply deeper, and share
+ * only the transposition table (which is lockless). They speed up the main thread by
+ * filling the table; the answer always comes from the main thread, so threads == 1 is
+ * the plain sequential search and fully deterministic for a fixed depth.
+ *
+ * Both distance terms are read from the goal-distance maps QuoridorState keeps across
+ * pawn moves and repairs on wall changes, so a leaf costs two array reads;
+ * lastEvalHitRate reports how often a lookup found its map instead of running a BFS.
+ *
+ * One search at a time per instance.
+ */
+public final class QuoridorEngine {
+    static final int WIN = 1000000;
+    static final int INF = WIN + 1;
+    /** Scores beyond +-MATE are proven results (WIN - plies to the end); races can run far past MAX_PLY. */
+    static final int MATE = WIN / 2;
+    static final int MAX_PLY = 64;
+    private static final int ASPIRATION = 60;
+
+    private final QuoridorTranspositionTable tt;
+    private final int threads;
+    private final Searcher main = new Searcher(0);
+    private final Searcher[] helpers; // kept across moves, like main, with their tables and history
+    private long budgetNanos;
+
+    private volatile long deadline;
+    private volatile boolean stopped;
+
+    private long nodes;
+    private int lastDepth, lastScore;
+
+    /** Single-threaded engine answering within millisPerMove, with a 32 MB transposition table. */
+    public QuoridorEngine(long millisPerMove) { this(millisPerMove, 32); }
+
+    public QuoridorEngine(long millisPerMove, int ttMegabytes) { this(millisPerMove, ttMegabytes, 1); }
+
+    /** Engine searching with threads threads (Lazy SMP) that share one transposition table. */
+    public QuoridorEngine(long millisPerMove, int ttMegabytes, int threads) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be >= 1");
+        this.budgetNanos = millisPerMove * 1000000L;
+        this.tt = new QuoridorTranspositionTable(ttMegabytes);
+        this.threads = threads;
+        this.helpers = new Searcher[threads - 1];
+        for (int t = 0; t < helpers.length; t++) helpers[t] = new Searcher(t + 1);
+    }
+
+    public void setTimeBudget(long millisPerMove) { this.budgetNanos = millisPerMove * 1000000L; }
+
+    public int threads() { return threads; }
+    /** Depth of the last completed iteration of the previous search (0 for a forced move). */
+    public int lastDepth() { return lastDepth; }
+    /** Score of the previous search from the mover's point of view (100 = one step). */
+    public int lastScore() { return lastScore; }
+    /** Nodes visited by the previous search, over all threads. */
+    public long lastNodes() { return nodes; }
+    /** Fraction of the main thread's beta cutoffs in the previous search made by the first or second move tried. */
+    public double lastEarlyCutoffRate() { return main.ordering.earlyCutoffRate(); }
+    /** Fraction of the main thread's goal-distance lookups in the previous search served without a BFS. */
+    public double lastEvalHitRate() {
+        if (main.root == null) return 0;
+        long hits = main.root.distanceHits(), n = hits + main.root.distanceMisses();
+        return (n == 0) ? 0 : (double) hits / n;
+    }
+
+    /** Best action for the side to move in s, or null if the game is over. */
+    public QuoridorAction bestMove(QuoridorState s) { return bestMove(s, MAX_PLY - 1); }
+
+    /** As bestMove(s), but never deeper than maxDepth plies. */
+    public QuoridorAction bestMove(QuoridorState s, int maxDepth) {
+        nodes = 0;
+        lastDepth = 0;
+        lastScore = 0;
+        if (main.rules.isTerminal(s)) return null;
+        tt.newSearch();
+        stopped = false;
+        deadline = System.nanoTime() + budgetNanos;
+
+        QuoridorState pos = s.copy();
+        main.prepare(pos);
+        int n = main.rules.legalActionCodes(pos, main.moves[0]);
+        if (n == 0) return null;
+        if (n == 1) return main.table.action(main.moves[0][0]);
+        if (QuoridorEndgame.applies(pos)) { // solved exactly, no search needed
+            lastScore = main.race(pos, 0);
+            lastDepth = Math.max(main.endgame.plies(pos), 0);
+            return main.endgame.bestMove(pos);
+        }
+        if (QuoridorWallRace.applies(pos)
+                && main.wallRace.solve(pos, Long.MAX_VALUE, budgetNanos / 4000000L) == QuoridorWallRace.WIN) {
+            lastScore = WIN - main.wallRace.lastPlies();
+            lastDepth = main.wallRace.lastPlies();
+            nodes = main.wallRace.lastNodes();
+            return main.wallRace.lastMove();
+        }
+
+        Thread[] workers = new Thread[helpers.length];
+        for (int t = 0; t < helpers.length; t++) {
+            final Searcher h = helpers[t];
+            final QuoridorState copy = s.copy();
+            final int limit = maxDepth;
+            h.prepare(copy);
+            workers[t] = new Thread(new Runnable() {
+                @Override public void run() { h.deepen(copy, limit); }
+            }, "quoridor-smp-" + (t + 1));
+            workers[t].setDaemon(true);
+            workers[t].start();
+        }
+
+        int best = main.deepen(pos, maxDepth);
+        stopped = true;
+        nodes = main.nodes;
+        for (int t = 0; t < workers.length; t++) {
+            try {
+                workers[t].join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            nodes += helpers[t].nodes;
+        }
+        return main.table.action(best);
+    }
+
+    /** Per-thread search state: rules scratch, move buffers, move ordering and counters. */
+    private final class Searcher {
+        final int id;
+        final QuoridorRules rules = new QuoridorRules();
+        final QuoridorEndgame endgame = new QuoridorEndgame();
+        final QuoridorWallRace wallRace = new QuoridorWallRace();
+        final QuoridorWallCandidates candidates = new QuoridorWallCandidates(rules);
+        final QuoridorMoveOrdering ordering = new QuoridorMoveOrdering(MAX_PLY);
+        QuoridorActionTable table;
+        int[][] moves = new int[0][];
+        int[][] order = new int[0][];
+        final long[] path = new long[MAX_PLY]; // hash of the position at each ply of the current line
+        QuoridorState root;
+        int rootBest;
+        boolean ttProof;                       // a proven score was taken from a TT hit this iteration
+        long nodes;
+
+        Searcher(int id) { this.id = id; }
+
+        void prepare(QuoridorState pos) {
+            root = pos;
+            table = rules.table(pos);
+            int width = QuoridorRules.maxActions(pos.rows, pos.cols);
+            if (moves.length == 0 || moves[0].length < width) {
+                moves = new int[MAX_PLY][width];
+                order = new int[MAX_PLY][width];
+            }
+            ordering.newSearch(table);
+            nodes = 0;
+        }
+
+        /**
+         * Iterative deepening with aspiration windows; returns the best root action code
+         * of the last completed iteration. The main searcher records depth and score;
+         * odd-numbered helpers search one ply deeper than the iteration counter.
+         */
+        int deepen(QuoridorState pos, int maxDepth) {
+            int best = -1, score = 0, skew = id & 1;
+            for (int depth = 1; depth + skew <= maxDepth; depth++) {
+                int d = depth + skew;
+                int alpha = -INF, beta = INF;
+                if (d >= 3) { alpha = score - ASPIRATION; beta = score + ASPIRATION; }
+                int v;
+                ttProof = false;
+                while (true) {
+                    rootBest = -1;
+                    v = search(pos, d, 0, alpha, beta);
+                    if (stopped) break;
+                    if (v <= alpha) alpha = -INF;
+                    else if (v >= beta) beta = INF;
+                    else break;
+                }
+                if (stopped) break;
+                score = v;
+                if (rootBest >= 0) best = rootBest;
+                if (id == 0) {
+                    lastDepth = d;
+                    lastScore = v;
+                }
+                // A proven result ends deepening, unless it rests on a table entry: its win distance
+                // was measured on another path and need not shrink as the game goes on.
+                if (Math.abs(v) >= MATE && !ttProof) break;
+                if (System.nanoTime() > deadline) break;
+            }
+            return (best >= 0) ? best : moves[0][0];
+        }
+
+        /** Fail-soft negamax PVS; scores are from the side to move's point of view. */
+        int search(QuoridorState s, int depth, int ply, int alpha, int beta) {
+            if ((++nodes & 255) == 0 && System.nanoTime() > deadline) stopped = true;
+            if (stopped) return 0;
+            if (rules.isTerminal(s)) return -(WIN - ply); // only the player who just moved can have arrived
+            if (QuoridorEndgame.applies(s)) {
+                // A layout not seen yet costs a whole retrograde solve, which the node-count
+                // clock check cannot interrupt: only start one that fits in the time left.
+                return endgame.ready(s, deadline) ? race(s, ply) : evaluate(s);
+            }
+            long key = s.hash();
+            path[ply] = key;
+            for (int i = ply - 4; i >= 0; i -= 2) if (path[i] == key) return 0; // a cycle gains nothing
+            if (depth <= 0 || ply >= MAX_PLY - 1) return evaluate(s);
+
+            int alpha0 = alpha;
+            int ttMove = -1;
+            long e = tt.probe(key);
+            if (e != 0) {
+                ttMove = QuoridorTranspositionTable.move(e);
+                if (ply > 0 && QuoridorTranspositionTable.depth(e) >= depth) {
+                    int v = fromTt(QuoridorTranspositionTable.score(e), ply);
+                    int bound = QuoridorTranspositionTable.bound(e);
+                    if (bound == QuoridorTranspositionTable.EXACT
+                            || (bound == QuoridorTranspositionTable.LOWER && v >= beta)
+                            || (bound == QuoridorTranspositionTable.UPPER && v <= alpha)) {
+                        if (Math.abs(v) >= MATE) ttProof = true;
+                        return v;
+                    }
+                }
+            }
+
+            int[] list = moves[ply], keys = order[ply];
+            int n = rules.legalActionCodes(s, list);
+            // Candidate walls only. At the frontier a wall that misses the opponent's shortest
+            // paths cannot raise the evaluation.
+            int mode = (depth == 1) ? QuoridorWallCandidates.CUTTING : QuoridorWallCandidates.CANDIDATES;
+            n = candidates.filter(s, list, n, null, mode);
+            if (n == 0) return evaluate(s);
+            ordering.score(s, table, list, keys, n, ply, ttMove);
+
+            int best = -INF, bestMove = -1;
+            for (int k = 0; k < n; k++) {
+                int m = QuoridorMoveOrdering.next(list, keys, k, n);
+                long rec = rules.applyInPlace(s, table.action(m));
+                int v;
+                if (k == 0) {
+                    v = -search(s, depth - 1, ply + 1, -beta, -alpha);
+                } else {
+                    v = -search(s, depth - 1, ply + 1, -alpha - 1, -alpha);
+                    if (v > alpha && v < beta) v = -search(s, depth - 1, ply + 1, -beta, -alpha);
+                }
+                rules.undo(s, rec);
+                if (stopped) return 0;
+                if (v > best) {
+                    best = v;
+                    bestMove = m;
+                    if (ply == 0) rootBest = m;
+                    if (v > alpha) alpha = v;
+                    if (alpha >= beta) {
+                        ordering.cutoff(s.turn, m, ply, depth, k);
+                        break;
+                    }
+                }
+            }
+            int bound = (best >= beta) ? QuoridorTranspositionTable.LOWER
+                    : (best > alpha0) ? QuoridorTranspositionTable.EXACT : QuoridorTranspositionTable.UPPER;
+            tt.store(key, bestMove, depth, bound, toTt(best, ply));
+            return best;
+        }
+
+        /** Exact score of a wall-less race from QuoridorEndgame, with mate distance counted from the root. */
+        int race(QuoridorState s, int ply) {
+            int outcome = endgame.outcome(s);
+            if (outcome == QuoridorEndgame.DRAW) return 0;
+            int end = ply + endgame.plies(s);
+            return (outcome == QuoridorEndgame.WIN) ? WIN - end : -(WIN - end);
+        }
+    }
+
+    /** Path-length difference from the side to move's point of view. */
+    static int evaluate(QuoridorState s) {
+        int d1 = s.distanceToGoal(1), d2 = s.distanceToGoal(2);
+        int v = (d2 - d1) * 100 + (s.walls1 - s.walls2) * 10;
+        return ((s.turn == 1) ? v : -v) + 50;
+    }
+
+    private static int toTt(int v, int ply) {
+        if (v >= MATE) return v + ply;
+        if (v <= -MATE) return v - ply;
+        return v;
+    }
+
+    private static int fromTt(int v, int ply) {
+        if (v >= MATE) return v - ply;
+        if (v <= -MATE) return v + ply;
+        return v;
+    }
+}
@@ -0,0 +1,114 @@
+package puzzles.quoridor;
+
+/**
+ * Bit-parallel reachability over QuoridorState's bitboards. The reached set is a
+ * bitmask of cells (bit r * cols + c). Each round floods it along whole rows with
+ * Kogge-Stone shift-and-mask fills and then one row up and down, against masks of
+ * open edges derived from the wall words. No queue, no visited array and no
+ * Positions; a 9x9 board is two words per mask.
+ *
+ * Instances keep scratch masks per board size and are not thread-safe.
+ */
+final class QuoridorFlood {
+    private int rows = -1, cols = -1, words;
+    private long[] notLastCol, notLastRow, topRow, bottomRow;  // board-shape masks
+    private long[] down, right;                                // open edges for the current call
+    private long[] reach, prev, t, p;                          // scratch
+
+    /**
+     * True if start can reach goalRow. ovH / ovV are the anchor index of a hypothetical
+     * horizontal / vertical wall whose two segments are treated as blocked, or -1.
+     */
+    boolean reaches(QuoridorState s, int start, int goalRow, int ovH, int ovV) {
+        fit(s.rows, s.cols);
+        long[] goal = (goalRow == 0) ? topRow : bottomRow;
+        for (int i = 0; i < words; i++) {
+            down[i] = notLastRow[i] & ~s.hBits[i];
+            right[i] = notLastCol[i] & ~s.vBits[i];
+            reach[i] = 0L;
+        }
+        if (ovH >= 0) { QuoridorState.clearBit(down, ovH); QuoridorState.clearBit(down, ovH + 1); }
+        if (ovV >= 0) { QuoridorState.clearBit(right, ovV); QuoridorState.clearBit(right, ovV + cols); }
+        QuoridorState.setBit(reach, start);
+
+        while (true) {
+            boolean changed = false, hit = false;
+            for (int i = 0; i < words; i++) {
+                if ((reach[i] & goal[i]) != 0) hit = true;
+                prev[i] = reach[i];
+            }
+            if (hit) return true;
+            fillRows();
+            // one row down: from i across open segment i; one row up: from i across segment i - cols
+            and(t, reach, down);
+            orShiftLeft(reach, t, cols);
+            shiftRight(t, reach, cols);
+            for (int i = 0; i < words; i++) reach[i] |= t[i] & down[i];
+            for (int i = 0; i < words; i++) if (reach[i] != prev[i]) changed = true;
+            if (!changed) return false;
+        }
+    }
+
+    /** Spread reach along each row through open vertical segments, in log2(cols) rounds per side. */
+    private void fillRows() {
+        // rightwards: step k requires every segment between i and i + k open
+        System.arraycopy(right, 0, p, 0, words);
+        for (int k = 1; k < cols; k <<= 1) {
+            and(t, reach, p);
+            orShiftLeft(reach, t, k);
+            shiftRight(t, p, k);
+            and(p, p, t);
+        }
+        // leftwards: moving from i to i - k needs p bit i - k
+        System.arraycopy(right, 0, p, 0, words);
+        for (int k = 1; k < cols; k <<= 1) {
+            shiftRight(t, reach, k);
+            for (int i = 0; i < words; i++) reach[i] |= t[i] & p[i];
+            shiftRight(t, p, k);
+            and(p, p, t);
+        }
+    }
+
+    private void and(long[] dst, long[] a, long[] b) {
+        for (int i = 0; i < words; i++) dst[i] = a[i] & b[i];
+    }
+
+    /** dst |= src << k across words. */
+    private void orShiftLeft(long[] dst, long[] src, int k) {
+        int q = k >>> 6, m = k & 63;
+        for (int i = words - 1; i >= q; i--) {
+            long v = src[i - q] << m;
+            if (m != 0 && i - q - 1 >= 0) v |= src[i - q - 1] >>> (64 - m);
+            dst[i] |= v;
+        }
+    }
+
+    /** dst = src >>> k across words (dst must not alias src). */
+    private void shiftRight(long[] dst, long[] src, int k) {
+        int q = k >>> 6, m = k & 63;
+        for (int i = 0; i < words; i++) {
+            long v = (i + q < words) ? src[i + q] >>> m : 0L;
+            if (m != 0 && i + q + 1 < words) v |= src[i + q + 1] << (64 - m);
+            dst[i] = v;
+        }
+    }
+
+    private void fit(int rows, int cols) {
+        if (rows == this.rows && cols == this.cols) return;
+        this.rows = rows; this.cols = cols;
+        words = QuoridorState.wordsFor(rows * cols);
+        notLastCol = new long[words]; notLastRow = new long[words];
+        topRow = new long[words]; bottomRow = new long[words];
+        down = new long[words]; right = new long[words];
+        reach = new long[words]; prev = new long[words]; t = new long[words]; p = new long[words];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int i = r * cols + c;
+                if (c < cols - 1) QuoridorState.setBit(notLastCol, i);
+                if (r < rows - 1) QuoridorState.setBit(notLastRow, i);
+                if (r == 0) QuoridorState.setBit(topRow, i);
+                if (r == rows - 1) QuoridorState.setBit(bottomRow, i);
+            }
+        }
+    }
+}
@@ -2,12 +2,12 @@ package puzzles.quoridor;
 
 import game.core.ConsoleIO;
 import game.core.Game;
-import game.core.Position;
 
 public final class QuoridorGame implements Game {
     private final ConsoleIO io;
     private final QuoridorRules rules = new QuoridorRules();
     private QuoridorState state; // create after asking for size
+    private QuoridorEngine computer; // plays P2 when enabled
 
     public QuoridorGame(ConsoleIO io) { this.io = io; }
 
@@ -34,6 +34,10 @@ public final class QuoridorGame implements Game {
         }
         state = new QuoridorState(n, m);
 
+        io.print("Computer opponent for P2? (y/N): ");
+        String cpuLine = io.nextLine();
+        if (cpuLine != null && cpuLine.trim().toLowerCase().startsWith("y")) computer = new QuoridorEngine(1000);
+
         io.println(new QuoridorRenderer().render(state));
         while (true) {
             if (rules.isTerminal(state)) {
@@ -42,6 +46,14 @@ public final class QuoridorGame implements Game {
                 return;
             }
 
+            if (computer != null && state.turn == 2) {
+                QuoridorAction a = computer.bestMove(state);
+                io.println("P2> " + command(a));
+                state = rules.apply(state, a);
+                io.println(new QuoridorRenderer().render(state));
+                continue;
+            }
+
             io.print("P" + state.turn + "> ");
             String line = io.nextLine();
             if (line == null) return;
@@ -58,7 +70,7 @@ public final class QuoridorGame implements Game {
                 String cmd = t[0].toLowerCase();
                 if ("move".equals(cmd)) {
                     int r = Integer.parseInt(t[1]), c = Integer.parseInt(t[2]);
-                    a = QuoridorAction.move(state.currentPawn(), new Position(r, c));
+                    a = QuoridorAction.move(state.currentPawn(), state.positions.at(r, c));
                 } else if ("wall".equals(cmd)) {
                     String hv = t[1].toLowerCase();
                     int r = Integer.parseInt(t[2]), c = Integer.parseInt(t[3]);
@@ -80,4 +92,13 @@ public final class QuoridorGame implements Game {
             }
         }
     }
+
+    /** An action in the same syntax the prompt accepts. */
+    private static String command(QuoridorAction a) {
+        switch (a.type) {
+            case MOVE:   return "move " + a.to.r + " " + a.to.c;
+            case WALL_H: return "wall h " + a.r + " " + a.c;
+            default:     return "wall v " + a.r + " " + a.c;
+        }
+    }
 }
@@ -0,0 +1,175 @@
+package puzzles.quoridor;
+
+import java.util.Arrays;
+
+/**
+ * Computer player: Monte Carlo tree search with UCT selection and QuoridorPlayout
+ * rollouts, under a wall-clock (and optionally a playout) budget.
+ *
+ * The tree is stored as parallel primitive arrays (action code, first child, child
+ * count, visits, wins), and the children of a node are allocated as one contiguous
+ * block when it is expanded on its second visit. Each iteration walks one private
+ * copy of the root position with applyInPlace / undo, so iterations copy no states.
+ * Wins on a node count for the player who made its move. The answer is the most
+ * visited root child.
+ *
+ * lastPlayouts / lastPlayoutsPerSecond report throughput for strength-versus-time
+ * sweeps. Instances are single-threaded.
+ */
+public final class QuoridorMcts {
+    private static final double EXPLORATION = 1.0;
+    private static final int MAX_TREE_DEPTH = 256;
+
+    private final QuoridorRules rules = new QuoridorRules();
+    private final QuoridorPlayout playout;
+    private final QuoridorEndgame endgame = new QuoridorEndgame();
+    private final int maxNodes;
+    private long budgetNanos;
+
+    // Tree, one slot per node; node 0 is the root
+    private int[] code = new int[0], first = new int[0], count = new int[0], visits = new int[0];
+    private double[] wins = new double[0];
+    private int size;
+
+    private final int[] path = new int[MAX_TREE_DEPTH + 1];
+    private final int[] mover = new int[MAX_TREE_DEPTH + 1];
+    private final long[] recs = new long[MAX_TREE_DEPTH + 1];
+    private int[] buf = new int[0];
+
+    private long playouts, nanos;
+
+    /** Player answering within millisPerMove, with a fixed seed and a 4M-node tree cap. */
+    public QuoridorMcts(long millisPerMove) { this(millisPerMove, 1L << 32 | 12345, 1 << 22); }
+
+    public QuoridorMcts(long millisPerMove, long seed, int maxNodes) {
+        this.budgetNanos = millisPerMove * 1000000L;
+        this.playout = new QuoridorPlayout(rules, seed);
+        this.maxNodes = maxNodes;
+    }
+
+    public void setTimeBudget(long millisPerMove) { this.budgetNanos = millisPerMove * 1000000L; }
+
+    /** Playouts run by the previous search. */
+    public long lastPlayouts() { return playouts; }
+    /** Playout throughput of the previous search. */
+    public double lastPlayoutsPerSecond() { return (nanos == 0) ? 0 : playouts * 1e9 / nanos; }
+    /** Nodes in the tree built by the previous search. */
+    public int lastTreeSize() { return size; }
+
+    /** Best action for the side to move in s, or null if the game is over. */
+    public QuoridorAction bestMove(QuoridorState s) { return bestMove(s, Long.MAX_VALUE); }
+
+    /** As bestMove(s), but stops after maxPlayouts playouts if the time budget allows that many. */
+    public QuoridorAction bestMove(QuoridorState s, long maxPlayouts) {
+        playouts = 0;
+        nanos = 0;
+        size = 0;
+        if (rules.isTerminal(s)) return null;
+        if (QuoridorEndgame.applies(s)) return endgame.bestMove(s);
+        QuoridorState pos = s.copy();
+        QuoridorActionTable table = rules.table(pos);
+        int width = QuoridorRules.maxActions(pos.rows, pos.cols);
+        if (buf.length < width) buf = new int[width];
+
+        long start = System.nanoTime(), deadline = start + budgetNanos;
+        reserve(1 + width);
+        newNode(-1);
+        expand(0, pos);
+        if (count[0] == 1) return table.action(code[first[0]]);
+
+        int cap = 4 * pos.rows * pos.cols;
+        do {
+            iterate(pos, cap);
+        } while (++playouts < maxPlayouts && System.nanoTime() < deadline);
+        nanos = System.nanoTime() - start;
+
+        int best = first[0];
+        for (int c = first[0] + 1; c < first[0] + count[0]; c++) if (visits[c] > visits[best]) best = c;
+        return table.action(code[best]);
+    }
+
+    /** Win rate of the chosen move in the previous search, from the mover's point of view. */
+    public double lastWinRate() {
+        if (size == 0 || count[0] == 0) return 0;
+        int best = first[0];
+        for (int c = first[0] + 1; c < first[0] + count[0]; c++) if (visits[c] > visits[best]) best = c;
+        return (visits[best] == 0) ? 0 : wins[best] / visits[best];
+    }
+
+    /** Selection, expansion, one playout and backpropagation; s is restored on return. */
+    private void iterate(QuoridorState s, int cap) {
+        QuoridorActionTable table = rules.table(s);
+        int node = 0, depth = 0;
+        path[0] = 0;
+        while (count[node] > 0 && depth < MAX_TREE_DEPTH) {
+            node = select(node);
+            mover[++depth] = s.turn;
+            recs[depth] = rules.applyInPlace(s, table.action(code[node]));
+            path[depth] = node;
+        }
+
+        int winner;
+        if (rules.isTerminal(s)) {
+            winner = 3 - s.turn;
+        } else {
+            if (visits[node] > 0 && depth < MAX_TREE_DEPTH && expand(node, s)) {
+                node = first[node];
+                mover[++depth] = s.turn;
+                recs[depth] = rules.applyInPlace(s, table.action(code[node]));
+                path[depth] = node;
+            }
+            winner = playout.run(s, cap);
+        }
+
+        for (int k = depth; k > 0; k--) {
+            rules.undo(s, recs[k]);
+            visits[path[k]]++;
+            if (mover[k] == winner) wins[path[k]] += 1;
+        }
+        visits[0]++;
+    }
+
+    /** UCT child of node; unvisited children are taken first, in generation order. */
+    private int select(int node) {
+        double logN = Math.log(visits[node] + 1);
+        int best = -1;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int c = first[node], end = c + count[node]; c < end; c++) {
+            if (visits[c] == 0) return c;
+            double v = wins[c] / visits[c] + EXPLORATION * Math.sqrt(logN / visits[c]);
+            if (v > bestValue) { bestValue = v; best = c; }
+        }
+        return best;
+    }
+
+    /** Give node one child per legal action; false if the node cap leaves no room. */
+    private boolean expand(int node, QuoridorState s) {
+        int n = rules.legalActionCodes(s, buf);
+        if (size + n > maxNodes) return false;
+        reserve(size + n);
+        first[node] = size;
+        for (int k = 0; k < n; k++) newNode(buf[k]);
+        count[node] = n;
+        return n > 0;
+    }
+
+    private void newNode(int action) {
+        int i = size++;
+        code[i] = action;
+        first[i] = 0;
+        count[i] = 0;
+        visits[i] = 0;
+        wins[i] = 0;
+    }
+
+    /** Grow the node arrays to hold at least n nodes. */
+    private void reserve(int n) {
+        if (code.length >= n) return;
+        int cap = Math.max(n, Math.min(maxNodes, Math.max(1024, code.length * 2)));
+        code = Arrays.copyOf(code, cap);
+        first = Arrays.copyOf(first, cap);
+        count = Arrays.copyOf(count, cap);
+        visits = Arrays.copyOf(visits, cap);
+        wins = Arrays.copyOf(wins, cap);
+    }
+}
@@ -0,0 +1,100 @@
+package puzzles.quoridor;
+
+import game.core.Position;
+
+import java.util.Arrays;
+
+/**
+ * Move ordering for alpha-beta search over QuoridorActionTable codes. Keys are
+ * written into a caller-supplied int[] parallel to the move list, highest first:
+ *   transposition-table move
+ *   pawn moves that shorten the mover's path (further ahead first)
+ *   killer moves of this ply (two slots, most recent first)
+ *   everything else by history score, then walls closest to the opponent's pawn
+ * The history table is indexed by player and action code, and is credited with
+ * depth^2 for every move that causes a beta cutoff. It is halved at each new search
+ * and whenever an entry grows too large, so old results fade.
+ *
+ * It also counts at which move index cutoffs happen, so callers can check that the
+ * ordering finds refutations early. Allocates nothing after newSearch; use one
+ * instance per search thread.
+ */
+public final class QuoridorMoveOrdering {
+    private static final int TT_KEY = Integer.MAX_VALUE;
+    private static final int PATH_KEY = 1 << 29;
+    private static final int KILLER_KEY = 1 << 28;
+    private static final int HISTORY_CAP = 1 << 20;
+
+    private final int[][] killers;
+    private int[][] history = new int[3][0];
+    private long cutoffs, firstCutoffs, secondCutoffs;
+
+    /** Ordering with killer slots for plies 0 .. maxPly - 1. */
+    public QuoridorMoveOrdering(int maxPly) {
+        killers = new int[maxPly][2];
+        for (int[] k : killers) Arrays.fill(k, -1);
+    }
+
+    /** Start a search with table's codes: clear killers and statistics, age history. */
+    public void newSearch(QuoridorActionTable table) {
+        if (history[1].length != table.size()) {
+            history = new int[3][table.size()];
+        } else {
+            for (int p = 1; p <= 2; p++) for (int i = 0; i < history[p].length; i++) history[p][i] >>= 1;
+        }
+        for (int[] k : killers) Arrays.fill(k, -1);
+        cutoffs = firstCutoffs = secondCutoffs = 0;
+    }
+
+    /** Fill keys[0..n) for the moves codes[0..n) of s at ply; ttMove is a code or -1. */
+    public void score(QuoridorState s, QuoridorActionTable table, int[] codes, int[] keys, int n, int ply, int ttMove) {
+        int cols = s.cols;
+        int[] dist = s.goalDistances(s.turn), hist = history[s.turn];
+        Position me = s.currentPawn(), opp = s.otherPawn();
+        int here = dist[me.r * cols + me.c];
+        int k0 = killers[ply][0], k1 = killers[ply][1];
+        for (int k = 0; k < n; k++) {
+            int m = codes[k];
+            if (m == ttMove) { keys[k] = TT_KEY; continue; }
+            if (table.isMove(m) && dist[table.cell(m)] < here) { keys[k] = PATH_KEY + here - dist[table.cell(m)]; continue; }
+            if (m == k0) { keys[k] = KILLER_KEY + 1; continue; }
+            if (m == k1) { keys[k] = KILLER_KEY; continue; }
+            int cell = table.cell(m);
+            int near = table.isMove(m) ? 0 : Math.abs(cell / cols - opp.r) + Math.abs(cell % cols - opp.c);
+            keys[k] = hist[m] * 32 - near;
+        }
+    }
+
+    /** Selection step: move the highest-keyed entry of k..n-1 to slot k and return its code. */
+    public static int next(int[] codes, int[] keys, int k, int n) {
+        int bi = k;
+        for (int i = k + 1; i < n; i++) if (keys[i] > keys[bi]) bi = i;
+        if (bi != k) {
+            int t = codes[k]; codes[k] = codes[bi]; codes[bi] = t;
+            t = keys[k]; keys[k] = keys[bi]; keys[bi] = t;
+        }
+        return codes[k];
+    }
+
+    /** Record that move (the index-th tried) of player caused a beta cutoff at ply with depth left. */
+    public void cutoff(int player, int move, int ply, int depth, int index) {
+        cutoffs++;
+        if (index == 0) firstCutoffs++;
+        else if (index == 1) secondCutoffs++;
+        int[] k = killers[ply];
+        if (k[0] != move) { k[1] = k[0]; k[0] = move; }
+        int[] hist = history[player];
+        if ((hist[move] += depth * depth) > HISTORY_CAP) {
+            for (int p = 1; p <= 2; p++) for (int i = 0; i < history[p].length; i++) history[p][i] >>= 1;
+        }
+    }
+
+    /** Beta cutoffs since newSearch. */
+    public long cutoffs() { return cutoffs; }
+
+    /** Fraction of cutoffs since newSearch caused by the first move tried. */
+    public double firstMoveCutoffRate() { return (cutoffs == 0) ? 0 : (double) firstCutoffs / cutoffs; }
+
+    /** Fraction of cutoffs since newSearch caused by the first or second move tried. */
+    public double earlyCutoffRate() { return (cutoffs == 0) ? 0 : (double) (firstCutoffs + secondCutoffs) / cutoffs; }
+}
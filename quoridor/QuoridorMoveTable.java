@@ -0,0 +1,68 @@
+package puzzles.quoridor;
+
+/**
+ * Precomputed pawn-move table. Pawn destinations only depend on which of the mover's
+ * four edges are open, whether the opponent is orthogonally adjacent (and where), and
+ * which of the opponent's four edges are open. For every such key the table holds
+ * the legal destinations as a 25-bit mask over the 5x5 window centered on the mover,
+ * including straight jumps and side-steps. Board edges count as closed edges, so the
+ * table does not depend on board size.
+ */
+final class QuoridorMoveTable {
+    private QuoridorMoveTable() {}
+
+    // Direction d: 0 up, 1 down, 2 left, 3 right (same order as QuoridorState.step)
+    static final int[] DR = {-1, 1, 0, 0};
+    static final int[] DC = {0, 0, -1, 1};
+    private static final int[] BACK = {1, 0, 3, 2};
+
+    /** Key: (oppDir + 1) * 256 + myOpen * 16 + oppOpen, oppDir = -1 when not adjacent. */
+    private static final int[] TABLE = new int[5 * 256];
+
+    static {
+        for (int oppDir = -1; oppDir < 4; oppDir++) {
+            for (int my = 0; my < 16; my++) {
+                for (int op = 0; op < 16; op++) {
+                    int mask = 0;
+                    for (int d = 0; d < 4; d++) {
+                        if ((my & (1 << d)) == 0) continue;
+                        if (d != oppDir) { mask |= bit(DR[d], DC[d]); continue; }
+                        // Opponent next to us: straight jump and side-steps are its open edges except back
+                        for (int e = 0; e < 4; e++) {
+                            if (e != BACK[d] && (op & (1 << e)) != 0) mask |= bit(DR[d] + DR[e], DC[d] + DC[e]);
+                        }
+                    }
+                    TABLE[(oppDir + 1) * 256 + my * 16 + op] = mask;
+                }
+            }
+        }
+    }
+
+    /** Window bit for the offset (dr, dc), both in [-2, 2]. */
+    static int bit(int dr, int dc) { return 1 << ((dr + 2) * 5 + (dc + 2)); }
+
+    /** Row / column offset of window bit index b. */
+    static int dr(int b) { return b / 5 - 2; }
+    static int dc(int b) { return b % 5 - 2; }
+
+    /** Legal destinations of the pawn on cell me with the opponent on cell opp, as a window mask. */
+    static int destinations(QuoridorState s, int me, int opp) {
+        int cols = s.cols;
+        int dr = opp / cols - me / cols, dc = opp % cols - me % cols;
+        int oppDir = -1;
+        if (dc == 0 && (dr == -1 || dr == 1)) oppDir = (dr < 0) ? 0 : 1;
+        else if (dr == 0 && (dc == -1 || dc == 1)) oppDir = (dc < 0) ? 2 : 3;
+        int op = (oppDir < 0) ? 0 : open(s, opp);
+        return TABLE[(oppDir + 1) * 256 + open(s, me) * 16 + op];
+    }
+
+    /** Four open-edge bits of cell i (bit d set if a step in direction d is allowed). */
+    static int open(QuoridorState s, int i) {
+        int cols = s.cols, r = i / cols, c = i - r * cols, bits = 0;
+        if (r > 0 && !QuoridorState.bit(s.hBits, i - cols)) bits |= 1;
+        if (r < s.rows - 1 && !QuoridorState.bit(s.hBits, i)) bits |= 2;
+        if (c > 0 && !QuoridorState.bit(s.vBits, i - 1)) bits |= 4;
+        if (c < cols - 1 && !QuoridorState.bit(s.vBits, i)) bits |= 8;
+        return bits;
+    }
+}
@@ -0,0 +1,239 @@
+package puzzles.quoridor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Computer player: tree-parallel Monte Carlo tree search. Worker threads share one UCT
+ * tree (same layout as QuoridorMcts) and each runs its own QuoridorRules, playout
+ * generator and copy of the root position.
+ *
+ * Visits and wins are atomic counters. A worker descending through a child adds
+ * VIRTUAL_LOSS visits without wins, so the child looks worse to the other workers
+ * until the playout is backed up and the virtual visits are replaced by the real
+ * one. Expansion is lock-free: the first worker to CAS a leaf's child index from
+ * UNEXPANDED to EXPANDING generates the children into a block bump-allocated from a
+ * preallocated node pool, then publishes the index; workers that lose the race simply
+ * play out from the leaf.
+ *
+ * The pool is fixed at construction, since it cannot be grown while workers read it.
+ * Use measureScaling to check playout throughput against the thread count on a given
+ * machine. Instances run one search at a time.
+ */
+public final class QuoridorParallelMcts {
+    private static final double EXPLORATION = 1.0;
+    private static final int VIRTUAL_LOSS = 3;
+    private static final int MAX_TREE_DEPTH = 256;
+    private static final int UNEXPANDED = 0, EXPANDING = -1;
+
+    private final int threads;
+    private final long seed;
+    private long budgetNanos;
+
+    // Shared tree, one slot per node; node 0 is the root. first[i] > 0 once i is expanded.
+    private final int[] code, count;
+    private final AtomicIntegerArray first, visits, wins;
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maxNodes;
+
+    private final QuoridorEndgame endgame = new QuoridorEndgame();
+    private final AtomicLong playouts = new AtomicLong();
+    private volatile long deadline, limit;
+    private long nanos;
+
+    /** Player with the given worker count, answering within millisPerMove, with a 2M-node pool. */
+    public QuoridorParallelMcts(int threads, long millisPerMove) { this(threads, millisPerMove, 12345, 1 << 21); }
+
+    public QuoridorParallelMcts(int threads, long millisPerMove, long seed, int maxNodes) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be >= 1");
+        this.threads = threads;
+        this.budgetNanos = millisPerMove * 1000000L;
+        this.seed = seed;
+        this.maxNodes = maxNodes;
+        this.code = new int[maxNodes];
+        this.count = new int[maxNodes];
+        this.first = new AtomicIntegerArray(maxNodes);
+        this.visits = new AtomicIntegerArray(maxNodes);
+        this.wins = new AtomicIntegerArray(maxNodes);
+    }
+
+    public void setTimeBudget(long millisPerMove) { this.budgetNanos = millisPerMove * 1000000L; }
+
+    public int threads() { return threads; }
+    /** Playouts run by the previous search, over all workers. */
+    public long lastPlayouts() { return playouts.get(); }
+    /** Playout throughput of the previous search, over all workers. */
+    public double lastPlayoutsPerSecond() { return (nanos == 0) ? 0 : playouts.get() * 1e9 / nanos; }
+    /** Nodes in the tree built by the previous search. */
+    public int lastTreeSize() { return Math.min(size.get(), maxNodes); }
+
+    /** Best action for the side to move in s, or null if the game is over. */
+    public QuoridorAction bestMove(QuoridorState s) { return bestMove(s, Long.MAX_VALUE); }
+
+    /** As bestMove(s), but stops after about maxPlayouts playouts if the time budget allows that many. */
+    public QuoridorAction bestMove(QuoridorState s, long maxPlayouts) {
+        playouts.set(0);
+        nanos = 0;
+        size.set(0);
+        QuoridorRules rules = new QuoridorRules();
+        if (rules.isTerminal(s)) return null;
+        if (QuoridorEndgame.applies(s)) return endgame.bestMove(s);
+        QuoridorActionTable table = rules.table(s);
+
+        long start = System.nanoTime();
+        deadline = start + budgetNanos;
+        limit = maxPlayouts;
+        clear(0, 1);
+        size.set(1);
+        Worker main = new Worker(s, rules, seed);
+        main.expand(0, main.pos);
+        if (count[0] == 1) return table.action(code[first.get(0)]);
+
+        Thread[] pool = new Thread[threads - 1];
+        for (int t = 0; t < pool.length; t++) {
+            pool[t] = new Thread(new Worker(s, new QuoridorRules(), seed + 0x9E3779B97F4A7C15L * (t + 1)),
+                    "quoridor-mcts-" + (t + 1));
+            pool[t].setDaemon(true);
+            pool[t].start();
+        }
+        main.run();
+        for (Thread t : pool) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        nanos = System.nanoTime() - start;
+
+        int best = first.get(0);
+        for (int c = best + 1; c < first.get(0) + count[0]; c++) if (visits.get(c) > visits.get(best)) best = c;
+        return table.action(code[best]);
+    }
+
+    /**
+     * Playouts per second from a fresh search of s for millisPerRun with each of the
+     * given worker counts, after one untimed warm-up run; speedup is result[i] / result[0]
+     * when threadCounts[0] == 1.
+     */
+    public static double[] measureScaling(QuoridorState s, long millisPerRun, int[] threadCounts) {
+        new QuoridorParallelMcts(1, millisPerRun).bestMove(s); // warm-up, so the JIT does not skew the first run
+        double[] rate = new double[threadCounts.length];
+        for (int i = 0; i < threadCounts.length; i++) {
+            QuoridorParallelMcts m = new QuoridorParallelMcts(threadCounts[i], millisPerRun);
+            m.bestMove(s);
+            rate[i] = m.lastPlayoutsPerSecond();
+        }
+        return rate;
+    }
+
+    private void clear(int from, int to) {
+        for (int i = from; i < to; i++) {
+            count[i] = 0;
+            first.set(i, UNEXPANDED);
+            visits.set(i, 0);
+            wins.set(i, 0);
+        }
+    }
+
+    /** One search thread: private position, rules and playout policy over the shared tree. */
+    private final class Worker implements Runnable {
+        final QuoridorState pos;
+        final QuoridorRules rules;
+        final QuoridorActionTable table;
+        final QuoridorPlayout playout;
+        final int[] path = new int[MAX_TREE_DEPTH + 1];
+        final int[] mover = new int[MAX_TREE_DEPTH + 1];
+        final long[] recs = new long[MAX_TREE_DEPTH + 1];
+        final int[] buf;
+        final int cap;
+
+        Worker(QuoridorState s, QuoridorRules rules, long seed) {
+            this.pos = s.copy();
+            this.rules = rules;
+            this.table = rules.table(pos);
+            this.playout = new QuoridorPlayout(rules, seed);
+            this.buf = new int[QuoridorRules.maxActions(pos.rows, pos.cols)];
+            this.cap = 4 * pos.rows * pos.cols;
+        }
+
+        @Override
+        public void run() {
+            // Counted in local batches so the shared counter does not become a hot spot
+            int local = 0;
+            while (playouts.get() + local < limit && System.nanoTime() < deadline) {
+                iterate(pos);
+                if (++local == 16) { playouts.addAndGet(local); local = 0; }
+            }
+            playouts.addAndGet(local);
+        }
+
+        /** Selection with virtual loss, expansion, one playout and backpropagation. */
+        private void iterate(QuoridorState s) {
+            int node = 0, depth = 0;
+            path[0] = 0;
+            int f;
+            while ((f = first.get(node)) > 0 && depth < MAX_TREE_DEPTH) {
+                node = select(node, f);
+                visits.addAndGet(node, VIRTUAL_LOSS);
+                mover[++depth] = s.turn;
+                recs[depth] = rules.applyInPlace(s, table.action(code[node]));
+                path[depth] = node;
+            }
+
+            int winner;
+            if (rules.isTerminal(s)) {
+                winner = 3 - s.turn;
+            } else {
+                // Expand on the second real visit (our own virtual loss is already counted)
+                int seen = visits.get(node) - ((depth > 0) ? VIRTUAL_LOSS : 0);
+                if (seen > 0 && depth < MAX_TREE_DEPTH && expand(node, s)) {
+                    node = first.get(node);
+                    visits.addAndGet(node, VIRTUAL_LOSS);
+                    mover[++depth] = s.turn;
+                    recs[depth] = rules.applyInPlace(s, table.action(code[node]));
+                    path[depth] = node;
+                }
+                winner = playout.run(s, cap);
+            }
+
+            for (int k = depth; k > 0; k--) {
+                rules.undo(s, recs[k]);
+                visits.addAndGet(path[k], 1 - VIRTUAL_LOSS);
+                if (mover[k] == winner) wins.incrementAndGet(path[k]);
+            }
+            visits.incrementAndGet(0);
+        }
+
+        /** UCT child of an expanded node whose children start at f. */
+        private int select(int node, int f) {
+            double logN = Math.log(visits.get(node) + 1);
+            int best = f;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int c = f, end = f + count[node]; c < end; c++) {
+                int n = visits.get(c);
+                if (n == 0) return c;
+                double v = (double) wins.get(c) / n + EXPLORATION * Math.sqrt(logN / n);
+                if (v > bestValue) { bestValue = v; best = c; }
+            }
+            return best;
+        }
+
+        /** Claim and expand node; false if another worker holds it or the pool is full. */
+        boolean expand(int node, QuoridorState s) {
+            if (size.get() >= maxNodes || !first.compareAndSet(node, UNEXPANDED, EXPANDING)) return false;
+            int n = rules.legalActionCodes(s, buf);
+            int base = (n == 0) ? maxNodes : size.getAndAdd(n);
+            if (base + n > maxNodes) {
+                first.set(node, UNEXPANDED);
+                return false;
+            }
+            clear(base, base + n);
+            for (int k = 0; k < n; k++) code[base + k] = buf[k];
+            count[node] = n;
+            first.set(node, base); // volatile write publishes code[] and count[]
+            return true;
+        }
+    }
+}
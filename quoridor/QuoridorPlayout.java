@@ -0,0 +1,106 @@
+package puzzles.quoridor;
+
+import game.core.Position;
+
+/**
+ * Rollout policy for Monte Carlo search. A playout is played on the caller's state with
+ * QuoridorRules.applyInPlace and rewound with undo before returning, so it copies no
+ * QuoridorState and allocates nothing after the first call.
+ *
+ * Each turn the mover, with probability WALL_RATE and walls left, tries a wall that
+ * cuts the opponent's shortest path one or two steps ahead of the pawn; otherwise it
+ * steps to the legal destination closest to its goal (ties broken at random), with an
+ * occasional random step. A playout that reaches the ply limit is scored as a race:
+ * the mover wins if it is no farther from its goal than the opponent.
+ *
+ * Instances hold a random generator and an undo stack, so use one per thread.
+ */
+final class QuoridorPlayout {
+    private static final int WALL_RATE = 20;   // percent of turns that try a wall
+    private static final int RANDOM_STEP = 10; // percent of pawn moves chosen at random
+
+    private final QuoridorRules rules;
+    private long seed;
+    private long[] undo = new long[0];
+
+    QuoridorPlayout(QuoridorRules rules, long seed) {
+        this.rules = rules;
+        this.seed = (seed == 0) ? 0x9E3779B97F4A7C15L : seed;
+    }
+
+    /** Play s to the end or for at most maxPlies, restore it, and return the winner (1 or 2). */
+    int run(QuoridorState s, int maxPlies) {
+        if (undo.length < maxPlies) undo = new long[maxPlies];
+        QuoridorActionTable table = rules.table(s);
+        int plies = 0, winner;
+        while (true) {
+            if (s.p1.r == s.rows - 1) { winner = 1; break; }
+            if (s.p2.r == 0) { winner = 2; break; }
+            if (plies == maxPlies) { winner = raceWinner(s); break; }
+            int code = -1;
+            int left = (s.turn == 1) ? s.walls1 : s.walls2;
+            if (left > 0 && nextInt(100) < WALL_RATE) code = wall(s, table);
+            if (code < 0) code = step(s);
+            undo[plies++] = rules.applyInPlace(s, table.action(code));
+        }
+        while (plies > 0) rules.undo(s, undo[--plies]);
+        return winner;
+    }
+
+    /** Winner by distance when a playout is cut short: the side to move wins ties. */
+    static int raceWinner(QuoridorState s) {
+        int mine = s.distanceToGoal(s.turn), theirs = s.distanceToGoal(3 - s.turn);
+        return (mine <= theirs) ? s.turn : 3 - s.turn;
+    }
+
+    /** Move code of a greedy (or occasionally random) pawn step for the side to move. */
+    private int step(QuoridorState s) {
+        int cols = s.cols;
+        Position me = s.currentPawn(), opp = s.otherPawn();
+        int mi = me.r * cols + me.c;
+        int mask = QuoridorMoveTable.destinations(s, mi, opp.r * cols + opp.c);
+        int[] dist = s.goalDistances(s.turn);
+        boolean random = nextInt(100) < RANDOM_STEP;
+        int best = -1, bestDist = Integer.MAX_VALUE, ties = 0;
+        for (; mask != 0; mask &= mask - 1) {
+            int b = Integer.numberOfTrailingZeros(mask);
+            int to = mi + QuoridorMoveTable.dr(b) * cols + QuoridorMoveTable.dc(b);
+            int d = random ? 0 : dist[to];
+            if (d < bestDist) { best = to; bestDist = d; ties = 1; }
+            else if (d == bestDist && nextInt(++ties) == 0) best = to;
+        }
+        return best;
+    }
+
+    /** Code of a legal wall across the opponent's shortest path, or -1 if the tries fail. */
+    private int wall(QuoridorState s, QuoridorActionTable table) {
+        int rows = s.rows, cols = s.cols, them = 3 - s.turn;
+        Position opp = s.otherPawn();
+        int[] dist = s.goalDistances(them);
+        int i = opp.r * cols + opp.c, ahead = nextInt(2);
+        for (int k = 0; ; k++) {
+            if (dist[i] == 0 || dist[i] == QuoridorState.UNREACHABLE) return -1;
+            int next = -1, d = 0;
+            for (; d < 4; d++) {
+                int j = s.step(i, d);
+                if (j >= 0 && dist[j] == dist[i] - 1) { next = j; break; }
+            }
+            if (k < ahead) { i = next; continue; }
+            // Anchor of one of the two walls that cover the edge i -> next
+            int lo = Math.min(i, next), r = lo / cols, c = lo % cols;
+            boolean horizontal = d < 2;
+            if (nextInt(2) == 0) { if (horizontal) c--; else r--; }
+            if (r < 0 || r >= rows - 1 || c < 0 || c >= cols - 1) return -1;
+            int code = horizontal ? table.wallHCode(r, c) : table.wallVCode(r, c);
+            return (rules.validationError(s, table.action(code)) == null) ? code : -1;
+        }
+    }
+
+    /** Uniform int in [0, bound), from a xorshift generator. */
+    int nextInt(int bound) {
+        long x = seed;
+        x ^= x << 13; x ^= x >>> 7; x ^= x << 17;
+        seed = x;
+        return (int) (((x >>> 33) * bound) >>> 31);
+    }
+}
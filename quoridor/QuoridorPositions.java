@@ -0,0 +1,56 @@
+package puzzles.quoridor;
+
+import game.core.Position;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Flyweight pool of Positions for one board size: one canonical, immutable instance
+ * per cell, shared by the lattice, move generation, action tables and states, so
+ * pooled positions compare equal by identity. Off-board coordinates (e.g. user input
+ * that is about to be rejected) get a fresh, unpooled Position.
+ *
+ * It is also the registry of everything else fixed per board size: the Zobrist keys
+ * and the action table hang off the pool, so one lookup serves all three.
+ */
+public final class QuoridorPositions {
+    private static final ConcurrentHashMap<Long, QuoridorPositions> POOLS =
+            new ConcurrentHashMap<Long, QuoridorPositions>();
+
+    public final int rows;
+    public final int cols;
+    private final Position[] cells;
+    final QuoridorZobrist zobrist;
+    final QuoridorActionTable actions;
+
+    private QuoridorPositions(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.cells = new Position[rows * cols];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) cells[r * cols + c] = new Position(r, c);
+        }
+        this.zobrist = new QuoridorZobrist(rows, cols);
+        this.actions = new QuoridorActionTable(this);
+    }
+
+    /** Shared pool (with Zobrist keys and action table) for a board size; hold on to it, the lookup boxes its key. */
+    public static QuoridorPositions of(int rows, int cols) {
+        Long key = ((long) rows << 32) | cols;
+        QuoridorPositions p = POOLS.get(key);
+        if (p == null) {
+            QuoridorPositions fresh = new QuoridorPositions(rows, cols);
+            p = POOLS.putIfAbsent(key, fresh);
+            if (p == null) p = fresh;
+        }
+        return p;
+    }
+
+    /** Canonical position of cell index r * cols + c. */
+    public Position at(int cell) { return cells[cell]; }
+
+    /** Canonical position of (r,c), or a fresh one when off the board. */
+    public Position at(int r, int c) {
+        return (r >= 0 && r < rows && c >= 0 && c < cols) ? cells[r * cols + c] : new Position(r, c);
+    }
+}
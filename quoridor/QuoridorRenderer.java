@@ -5,7 +5,7 @@ import game.core.Renderer;
 
 /**
  * Pretty Quoridor renderer (Unicode/ASCII + optional ANSI colors) that matches the current state:
- *   - State fields used: rows, cols, h (rows-1 x cols), v (rows x cols-1), p1, p2, walls1, walls2, turn
+ *   - State fields used: rows, cols, h(r,c) (rows-1 x cols), v(r,c) (rows x cols-1), p1, p2, walls1, walls2, turn
  *   - Shows aligned column headers and junctions between horizontal segments
  *   - Java 8 compatible (no String.repeat)
  */
@@ -135,8 +135,8 @@ public final class QuoridorRenderer implements Renderer<QuoridorState> {
 
                 // vertical wall slot between this cell and the next cell
                 if (c < b.cols - 1) {
-                    String vw = b.v[r][c] ? VERT : " ";
-                    if (b.v[r][c] && tintWalls) vw = c(dim(vw), FG_YELLOW);
+                    String vw = b.v(r, c) ? VERT : " ";
+                    if (b.v(r, c) && tintWalls) vw = c(dim(vw), FG_YELLOW);
                     sb.append(repeat(" ", gutterW)).append(vw);
                 }
             }
@@ -146,8 +146,8 @@ public final class QuoridorRenderer implements Renderer<QuoridorState> {
             if (r < b.rows - 1) {
                 sb.append(repeat(" ", 2 + 2));
                 for (int c = 0; c < b.cols; c++) {
-                    boolean leftSeg  = b.h[r][c];
-                    boolean rightSeg = (c < b.cols - 1) && b.h[r][c+1];
+                    boolean leftSeg  = b.h(r, c);
+                    boolean rightSeg = (c < b.cols - 1) && b.h(r, c+1);
 
                     String h = leftSeg ? HSEG : repeat(" ", cellW);
                     if (leftSeg && tintWalls) h = c(dim(h), FG_YELLOW);
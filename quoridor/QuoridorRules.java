@@ -3,9 +3,15 @@ package puzzles.quoridor;
 import game.core.Position;
 import game.core.Rules;
 
-import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
 
+/** Quoridor rules. Instances keep reusable search scratch, so use one per thread. */
 public final class QuoridorRules implements Rules<QuoridorState, QuoridorAction> {
+    private final QuoridorWallOracle oracle = new QuoridorWallOracle();
+    private final QuoridorFlood flood = new QuoridorFlood();
+    private int[] codes = new int[0];
+    private QuoridorActionTable table;
 
     @Override
     public boolean isTerminal(QuoridorState s) {
@@ -20,40 +26,92 @@ public final class QuoridorRules implements Rules<QuoridorState, QuoridorAction>
     @Override
     public QuoridorState apply(QuoridorState s, QuoridorAction a) {
         QuoridorState next = s.copy();
+        applyInPlace(next, a);
+        return next;
+    }
 
+    /*
+     * Undo record layout (one long, no allocation):
+     *   bits 0-1  action kind (0 move, 1 wall h, 2 wall v)
+     *   bit  2    mover (0 = P1, 1 = P2)
+     *   bits 8+   move: mover's previous cell r * cols + c; wall: anchor r * cols + c
+     */
+    private static final int KIND_MOVE = 0, KIND_WALL_H = 1, KIND_WALL_V = 2;
+
+    /**
+     * Mutating counterpart of apply: plays a on s and returns a compact undo record.
+     * Like apply, it does not validate. Records must be undone in LIFO order.
+     */
+    public long applyInPlace(QuoridorState s, QuoridorAction a) {
+        int mover = s.turn;
+        long rec = (mover == 1) ? 0L : 4L;
         switch (a.type) {
             case MOVE: {
-                if (next.turn == 1) next.p1 = a.to; else next.p2 = a.to;
-
-                // refresh visible cells
-                for (int r = 0; r < next.rows; r++) {
-                    for (int c = 0; c < next.cols; c++) next.set(r, c, null);
-                }
-                next.set(next.p1.r, next.p1.c, new PawnPiece(1, "1"));
-                next.set(next.p2.r, next.p2.c, new PawnPiece(2, "2"));
-
-                next.turn = 3 - next.turn;
+                Position from = s.currentPawn();
+                rec |= KIND_MOVE | (long) (from.r * s.cols + from.c) << 8;
+                s.hash ^= pawnKey(s, mover, from) ^ pawnKey(s, mover, a.to);
+                if (mover == 1) s.p1 = a.to; else s.p2 = a.to;
                 break;
             }
             case WALL_H: {
-                next.h[a.r][a.c] = true;
-                if (a.c + 1 < next.cols) next.h[a.r][a.c + 1] = true;
-                if (next.turn == 1) next.walls1--; else next.walls2--;
-                next.rebuildGraphNeighbors();
-                next.turn = 3 - next.turn;
+                int anchor = a.r * s.cols + a.c;
+                rec |= KIND_WALL_H | (long) anchor << 8;
+                s.putWallH(a.r, a.c);
+                s.hash ^= s.zobrist.wallH(anchor) ^ spendWall(s, mover, -1);
                 break;
             }
             case WALL_V: {
-                next.v[a.r][a.c] = true;
-                if (a.r + 1 < next.rows) next.v[a.r + 1][a.c] = true;
-                if (next.turn == 1) next.walls1--; else next.walls2--;
-                next.rebuildGraphNeighbors();
-                next.turn = 3 - next.turn;
+                int anchor = a.r * s.cols + a.c;
+                rec |= KIND_WALL_V | (long) anchor << 8;
+                s.putWallV(a.r, a.c);
+                s.hash ^= s.zobrist.wallV(anchor) ^ spendWall(s, mover, -1);
+                break;
+            }
+            default: return rec;
+        }
+        s.turn = 3 - mover;
+        s.hash ^= s.zobrist.turn2;
+        return rec;
+    }
+
+    /** Restore the state exactly as it was before the applyInPlace that returned rec. */
+    public void undo(QuoridorState s, long rec) {
+        int mover = ((rec & 4L) == 0) ? 1 : 2;
+        int cell = (int) (rec >>> 8);
+        int r = cell / s.cols, c = cell - r * s.cols;
+        switch ((int) (rec & 3L)) {
+            case KIND_MOVE: {
+                Position from = s.positions.at(cell);
+                s.hash ^= pawnKey(s, mover, (mover == 1) ? s.p1 : s.p2) ^ pawnKey(s, mover, from);
+                if (mover == 1) s.p1 = from; else s.p2 = from;
+                break;
+            }
+            case KIND_WALL_H: {
+                s.removeWallH(r, c);
+                s.hash ^= s.zobrist.wallH(cell) ^ spendWall(s, mover, +1);
+                break;
+            }
+            case KIND_WALL_V: {
+                s.removeWallV(r, c);
+                s.hash ^= s.zobrist.wallV(cell) ^ spendWall(s, mover, +1);
                 break;
             }
             default: break;
         }
-        return next;
+        s.turn = mover;
+        s.hash ^= s.zobrist.turn2;
+    }
+
+    private static long pawnKey(QuoridorState s, int player, Position p) {
+        int i = p.r * s.cols + p.c;
+        return (player == 1) ? s.zobrist.pawn1[i] : s.zobrist.pawn2[i];
+    }
+
+    /** Add delta to player's wall count; returns the hash delta of the change. */
+    private static long spendWall(QuoridorState s, int player, int delta) {
+        int before = (player == 1) ? s.walls1 : s.walls2;
+        if (player == 1) s.walls1 += delta; else s.walls2 += delta;
+        return s.zobrist.walls(player, before) ^ s.zobrist.walls(player, before + delta);
     }
 
     @Override
@@ -74,14 +132,11 @@ public final class QuoridorRules implements Rules<QuoridorState, QuoridorAction>
                 if (me == 2 && s.walls2 <= 0) return "P2 has no walls left";
                 if (a.r < 0 || a.r >= s.rows - 1 || a.c < 0 || a.c >= s.cols - 1)
                     return "Wall anchor out of bounds";
-                if (s.h[a.r][a.c] || s.h[a.r][a.c + 1]) return "Wall overlaps existing horizontal wall";
-
-                QuoridorState sim = s.copy();
-                sim.h[a.r][a.c] = true;
-                sim.h[a.r][a.c + 1] = true;
-                sim.rebuildGraphNeighbors();
-                if (!hasPath(sim, sim.p1, sim.rows - 1)) return "Wall blocks P1 path";
-                if (!hasPath(sim, sim.p2, 0))            return "Wall blocks P2 path";
+                if (s.h(a.r, a.c) || s.h(a.r, a.c + 1)) return "Wall overlaps existing horizontal wall";
+
+                // Path check against s itself, with the candidate wall as an overlay
+                if (blocks(s, 1, a.r * s.cols + a.c, -1)) return "Wall blocks P1 path";
+                if (blocks(s, 2, a.r * s.cols + a.c, -1)) return "Wall blocks P2 path";
                 return null;
             }
             case WALL_V: {
@@ -89,56 +144,156 @@ public final class QuoridorRules implements Rules<QuoridorState, QuoridorAction>
                 if (me == 2 && s.walls2 <= 0) return "P2 has no walls left";
                 if (a.r < 0 || a.r >= s.rows - 1 || a.c < 0 || a.c >= s.cols - 1)
                     return "Wall anchor out of bounds";
-                if (s.v[a.r][a.c] || s.v[a.r + 1][a.c]) return "Wall overlaps existing vertical wall";
-
-                QuoridorState sim = s.copy();
-                sim.v[a.r][a.c] = true;
-                sim.v[a.r + 1][a.c] = true;
-                sim.rebuildGraphNeighbors();
-                if (!hasPath(sim, sim.p1, sim.rows - 1)) return "Wall blocks P1 path";
-                if (!hasPath(sim, sim.p2, 0))            return "Wall blocks P2 path";
+                if (s.v(a.r, a.c) || s.v(a.r + 1, a.c)) return "Wall overlaps existing vertical wall";
+
+                // Path check against s itself, with the candidate wall as an overlay
+                if (blocks(s, 1, -1, a.r * s.cols + a.c)) return "Wall blocks P1 path";
+                if (blocks(s, 2, -1, a.r * s.cols + a.c)) return "Wall blocks P2 path";
                 return null;
             }
             default: return "Unknown action";
         }
     }
 
-    /** One-step move validity, including the Quoridor jump rules. */
+    /** One-step move validity, including the Quoridor jump rules: a QuoridorMoveTable lookup. */
     private boolean isReachableStep(QuoridorState s, Position me, Position opp, Position target) {
-        for (Position n : s.lattice[me.r][me.c].neighbors()) {
-            if (n.equals(target) && !n.equals(opp)) return true;
-
-            if (n.equals(opp)) {
-                // Straight-over jump:
-                int dr = opp.r - me.r, dc = opp.c - me.c;
-                Position straight = new Position(opp.r + dr, opp.c + dc);
-                if (s.inBounds(straight.r, straight.c)
-                        && s.lattice[opp.r][opp.c].neighbors().contains(straight)
-                        && straight.equals(target)) return true;
-
-                // Side-steps if straight is blocked:
-                for (Position nn : s.lattice[opp.r][opp.c].neighbors()) {
-                    if (!(nn.r == me.r && nn.c == me.c)) {
-                        if (nn.equals(target)) return true;
-                    }
-                }
+        int dr = target.r - me.r, dc = target.c - me.c;
+        if (dr < -2 || dr > 2 || dc < -2 || dc > 2) return false;
+        int mask = QuoridorMoveTable.destinations(s, me.r * s.cols + me.c, opp.r * s.cols + opp.c);
+        return (mask & QuoridorMoveTable.bit(dr, dc)) != 0;
+    }
+
+    /** Upper bound on legalActions output: 6 pawn destinations plus two walls per anchor. */
+    public static int maxActions(int rows, int cols) {
+        return 6 + 2 * Math.max(rows - 1, 0) * Math.max(cols - 1, 0);
+    }
+
+    /** Convenience wrapper around the buffer overload; search code should reuse a buffer instead. */
+    public List<QuoridorAction> legalActions(QuoridorState s) {
+        QuoridorAction[] buf = new QuoridorAction[maxActions(s.rows, s.cols)];
+        return Arrays.asList(buf).subList(0, legalActions(s, buf));
+    }
+
+    /** Like legalActionCodes, but writes the interned QuoridorAction for each code. */
+    public int legalActions(QuoridorState s, QuoridorAction[] out) {
+        if (codes.length < out.length) codes = new int[out.length];
+        int n = legalActionCodes(s, codes);
+        QuoridorActionTable table = table(s);
+        for (int i = 0; i < n; i++) out[i] = table.action(codes[i]);
+        return n;
+    }
+
+    /** Action table for s's board size, cached across calls. */
+    public QuoridorActionTable table(QuoridorState s) {
+        if (table == null || table.rows != s.rows || table.cols != s.cols) table = QuoridorActionTable.of(s);
+        return table;
+    }
+
+    /**
+     * Fill out (length >= maxActions) with the QuoridorActionTable code of every legal
+     * action for the side to move and return how many were written: pawn moves first
+     * (steps, jumps, side-steps), then horizontal/vertical walls by anchor. Wall
+     * legality comes from a single QuoridorWallOracle pass; only walls it flags as
+     * possibly blocking get a path check. Allocates nothing.
+     */
+    public int legalActionCodes(QuoridorState s, int[] out) {
+        int n = 0, cols = s.cols, cells = s.rows * cols;
+        Position me = s.currentPawn(), opp = s.otherPawn();
+        int mi = me.r * cols + me.c, oi = opp.r * cols + opp.c;
+        for (int mask = QuoridorMoveTable.destinations(s, mi, oi); mask != 0; mask &= mask - 1) {
+            int b = Integer.numberOfTrailingZeros(mask);
+            out[n++] = mi + QuoridorMoveTable.dr(b) * cols + QuoridorMoveTable.dc(b);
+        }
+
+        int left = (s.turn == 1) ? s.walls1 : s.walls2;
+        if (left <= 0 || s.rows < 2 || cols < 2) return n;
+        oracle.analyze(s);
+        for (int r = 0; r < s.rows - 1; r++) {
+            for (int c = 0; c < cols - 1; c++) {
+                int a = r * cols + c;
+                if (!QuoridorState.bit(s.hBits, a) && !QuoridorState.bit(s.hBits, a + 1)
+                        && (!oracle.mayBlockH(r, c) || keepsPaths(s, a, -1))) out[n++] = cells + a;
+                if (!QuoridorState.bit(s.vBits, a) && !QuoridorState.bit(s.vBits, a + cols)
+                        && (!oracle.mayBlockV(r, c) || keepsPaths(s, -1, a))) out[n++] = 2 * cells + a;
             }
         }
-        return false;
-    }
-
-    /** BFS to check that a pawn has at least one path to its goal row. */
-    private boolean hasPath(QuoridorState s, Position start, int goalRow) {
-        boolean[][] vis = new boolean[s.rows][s.cols];
-        ArrayDeque<Position> dq = new ArrayDeque<Position>();
-        dq.add(start); vis[start.r][start.c] = true;
-        while (!dq.isEmpty()) {
-            Position p = dq.poll();
-            if (p.r == goalRow) return true;
-            for (Position n : s.lattice[p.r][p.c].neighbors()) {
-                if (!vis[n.r][n.c]) { vis[n.r][n.c] = true; dq.add(n); }
+        return n;
+    }
+
+    /** BFS confirmation for the (rare) walls the oracle flags as possibly blocking. */
+    private boolean keepsPaths(QuoridorState s, int ovH, int ovV) {
+        return hasPath(s, s.p1, s.rows - 1, ovH, ovV) && hasPath(s, s.p2, 0, ovH, ovV);
+    }
+
+    // Cached shortest path per player, valid for one wall layout and pawn cell
+    private long[] keyH = new long[0], keyV = new long[0];
+    private int keyRows = -1, keyCols = -1;
+    private final int[] keyPawn = {-1, -1, -1};
+    private final boolean[] pathOk = new boolean[3];
+    private final long[][] pathH = new long[3][0], pathV = new long[3][0];
+
+    /**
+     * True if the overlay wall leaves player p without a path to the goal row. A wall
+     * that cuts no segment of p's cached shortest path cannot disconnect p, so the
+     * BFS only runs for walls that actually cut it.
+     */
+    private boolean blocks(QuoridorState s, int p, int ovH, int ovV) {
+        refreshPaths(s);
+        if (pathOk[p] && !cuts(s, pathH[p], pathV[p], ovH, ovV)) return false;
+        return (p == 1) ? !hasPath(s, s.p1, s.rows - 1, ovH, ovV) : !hasPath(s, s.p2, 0, ovH, ovV);
+    }
+
+    /** Recompute the cached paths whose wall layout or start cell no longer matches s. */
+    private void refreshPaths(QuoridorState s) {
+        int words = s.hBits.length;
+        if (keyRows != s.rows || keyCols != s.cols
+                || !Arrays.equals(keyH, s.hBits) || !Arrays.equals(keyV, s.vBits)) {
+            if (keyH.length != words) {
+                keyH = new long[words]; keyV = new long[words];
+                for (int p = 1; p <= 2; p++) { pathH[p] = new long[words]; pathV[p] = new long[words]; }
+            }
+            System.arraycopy(s.hBits, 0, keyH, 0, words);
+            System.arraycopy(s.vBits, 0, keyV, 0, words);
+            keyRows = s.rows; keyCols = s.cols;
+            keyPawn[1] = keyPawn[2] = -1;
+        }
+        int c1 = s.p1.r * s.cols + s.p1.c, c2 = s.p2.r * s.cols + s.p2.c;
+        if (keyPawn[1] != c1) { pathOk[1] = markPath(s, 1, pathH[1], pathV[1]); keyPawn[1] = c1; }
+        if (keyPawn[2] != c2) { pathOk[2] = markPath(s, 2, pathH[2], pathV[2]); keyPawn[2] = c2; }
+    }
+
+    private static boolean cuts(QuoridorState s, long[] pathH, long[] pathV, int ovH, int ovV) {
+        if (ovH >= 0) return QuoridorState.bit(pathH, ovH) || QuoridorState.bit(pathH, ovH + 1);
+        return QuoridorState.bit(pathV, ovV) || QuoridorState.bit(pathV, ovV + s.cols);
+    }
+
+    /** Mark the segments crossed by one shortest path of player to its goal row; false if there is none. */
+    private boolean markPath(QuoridorState s, int player, long[] pathH, long[] pathV) {
+        Arrays.fill(pathH, 0L);
+        Arrays.fill(pathV, 0L);
+        int[] dist = s.goalDistances(player);
+        Position start = (player == 1) ? s.p1 : s.p2;
+        int i = start.r * s.cols + start.c;
+        if (dist[i] == QuoridorState.UNREACHABLE) return false;
+        while (dist[i] > 0) { // walk down the distance gradient
+            for (int d = 0; d < 4; d++) {
+                int j = s.step(i, d);
+                if (j >= 0 && dist[j] == dist[i] - 1) {
+                    if (d < 2) QuoridorState.setBit(pathH, Math.min(i, j)); else QuoridorState.setBit(pathV, Math.min(i, j));
+                    i = j;
+                    break;
+                }
             }
         }
-        return false;
+        return true;
+    }
+
+    /**
+     * Check that a pawn has at least one path to its goal row, by bit-parallel flood fill.
+     * ovH / ovV are the anchor index (r * cols + c) of a hypothetical horizontal /
+     * vertical wall whose two segments are treated as blocked, or -1 for none.
+     */
+    private boolean hasPath(QuoridorState s, Position start, int goalRow, int ovH, int ovV) {
+        return flood.reaches(s, start.r * s.cols + start.c, goalRow, ovH, ovV);
     }
 }
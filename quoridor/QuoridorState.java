@@ -9,26 +9,47 @@ import java.util.Arrays;
 
 /**
  * Quoridor state with dynamic rectangular size (rows x cols).
- * Cells are rows x cols.
+ * Cells are rows x cols, indexed as r * cols + c.
  * Horizontal walls h: (rows-1) x cols   (between (r,c) and (r+1,c))
  * Vertical walls   v: rows x (cols-1)   (between (r,c) and (r,c+1))
+ *
+ * Wall segments are packed into bitboards (one bit per segment, same r * cols + c
+ * index as the cell above / left of it), so the standard 9x9 board keeps all of
+ * its walls in four longs. Copy, equals and hashCode work on those words.
+ * The Tile lattice is derived from the walls and only materialized on demand.
+ * Pawn and lattice positions come from the board size's QuoridorPositions pool.
  */
 public final class QuoridorState implements Board<Piece> {
+    private static final PawnPiece PAWN1 = new PawnPiece(1, "1");
+    private static final PawnPiece PAWN2 = new PawnPiece(2, "2");
+
     public final int rows;
     public final int cols;
+    public final QuoridorPositions positions; // canonical Position per cell
+    final QuoridorZobrist zobrist;
 
-    private final Piece[][] cells; // for rendering pawns only
-    public final boolean[][] h;    // horizontal segments
-    public final boolean[][] v;    // vertical segments
+    final long[] hBits;            // horizontal segments, bit r*cols+c
+    final long[] vBits;            // vertical segments,   bit r*cols+c
+    private Piece[][] extra;       // pieces set() by callers (lazy, render-only)
 
     public Position p1;            // P1 pawn
     public Position p2;            // P2 pawn
     public int walls1;             // P1 remaining walls
     public int walls2;             // P2 remaining walls
     public int turn = 1;           // 1 or 2
+    long hash;                     // Zobrist hash, kept current by QuoridorRules
+
+    // Tile lattice for pathfinding (one Tile per cell), built lazily by lattice()
+    private Tile[][] lattice;
+
+    // Goal-distance maps (index r*cols+c), built lazily and repaired in place on wall changes.
+    // Copies share them until one side repairs (copy-on-write via distShared).
+    private int[] dist1, dist2;
+    private boolean distShared;
+    private long distHits, distMisses; // goalDistances answered from the maps / by a full BFS
 
-    // Tile lattice for pathfinding (one Tile per cell)
-    public final Tile[][] lattice;
+    /** Distance reported for cells that cannot reach the goal row. */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
 
     /** Default 9x9. */
     public QuoridorState() { this(9, 9); }
@@ -36,105 +57,264 @@ public final class QuoridorState implements Board<Piece> {
     public QuoridorState(int rows, int cols) {
         this.rows = rows;
         this.cols = cols;
-        this.cells = new Piece[rows][cols];
-        this.h = new boolean[Math.max(rows - 1, 0)][cols];
-        this.v = new boolean[rows][Math.max(cols - 1, 0)];
-        this.lattice = new Tile[rows][cols];
+        this.positions = QuoridorPositions.of(rows, cols);
+        int words = wordsFor(rows * cols);
+        this.hBits = new long[words];
+        this.vBits = new long[words];
 
         // Start pawns centered in the top/bottom rows
-        this.p1 = new Position(0, cols / 2);
-        this.p2 = new Position(rows - 1, cols / 2);
+        this.p1 = positions.at(0, cols / 2);
+        this.p2 = positions.at(rows - 1, cols / 2);
 
         // Simple rule-of-thumb for walls per player: min(rows, cols) + 1 (9x9 → 10)
         int w = Math.min(rows, cols) + 1;
         this.walls1 = w;
         this.walls2 = w;
 
-        initLatticeFresh();
+        this.zobrist = positions.zobrist;
+        this.hash = zobrist.hash(this);
+    }
 
-        // Place pawn pieces for rendering
-        set(p1.r, p1.c, new PawnPiece(1, "1"));
-        set(p2.r, p2.c, new PawnPiece(2, "2"));
+    /**
+     * Copy constructor: a single pass over primitive state. Clones the wall words,
+     * shares the immutable pawn positions and leaves the lattice to be rebuilt lazily.
+     */
+    private QuoridorState(QuoridorState src) {
+        this.rows = src.rows;
+        this.cols = src.cols;
+        this.positions = src.positions;
+        this.zobrist = src.zobrist;
+        this.hash = src.hash;
+        this.hBits = src.hBits.clone();
+        this.vBits = src.vBits.clone();
+        this.p1 = src.p1;
+        this.p2 = src.p2;
+        this.walls1 = src.walls1;
+        this.walls2 = src.walls2;
+        this.turn = src.turn;
+        this.dist1 = src.dist1;
+        this.dist2 = src.dist2;
+        if (dist1 != null || dist2 != null) this.distShared = src.distShared = true;
+        if (src.extra != null) {
+            this.extra = new Piece[rows][];
+            for (int r = 0; r < rows; r++) this.extra[r] = src.extra[r].clone();
+        }
+    }
 
-        rebuildGraphNeighbors();
+    static int wordsFor(int bits) { return (bits + 63) >>> 6; }
+    static boolean bit(long[] b, int i) { return (b[i >>> 6] & (1L << i)) != 0; }
+    static void setBit(long[] b, int i) { b[i >>> 6] |= 1L << i; }
+    static void clearBit(long[] b, int i) { b[i >>> 6] &= ~(1L << i); }
+
+    /** Tile lattice for pathfinding; built from the walls on first use, then kept in sync by putWall*. */
+    public Tile[][] lattice() {
+        if (lattice == null) rebuildGraphNeighbors();
+        return lattice;
     }
 
-    /** Recreate Tile objects (clears neighbor edges safely). */
-    private void initLatticeFresh() {
+    /** Rebuild graph adjacency in the Tile lattice based on current walls. */
+    public void rebuildGraphNeighbors() {
+        if (lattice == null) lattice = new Tile[rows][cols];
         for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                lattice[r][c] = new Tile(0, new Position(r, c));
-            }
+            for (int c = 0; c < cols; c++) refreshTile(r, c);
         }
     }
 
-    /** Rebuild graph adjacency in the Tile lattice based on current walls. */
-    public void rebuildGraphNeighbors() {
-        initLatticeFresh(); // clears all edges
+    /** Recreate one Tile (clears its edges) and re-add the edges the walls leave open. */
+    private void refreshTile(int r, int c) {
+        int i = r * cols + c;
+        Tile t = new Tile(0, positions.at(i));
+        // Up
+        if (r > 0 && !h(r - 1, c)) t.addEdge(positions.at(i - cols));
+        // Down
+        if (r < rows - 1 && !h(r, c)) t.addEdge(positions.at(i + cols));
+        // Left
+        if (c > 0 && !v(r, c - 1)) t.addEdge(positions.at(i - 1));
+        // Right
+        if (c < cols - 1 && !v(r, c)) t.addEdge(positions.at(i + 1));
+        lattice[r][c] = t;
+    }
 
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                // Up
-                if (r > 0 && !h[r - 1][c]) {
-                    lattice[r][c].addEdge(new Position(r - 1, c));
-                }
-                // Down
-                if (r < rows - 1 && !h[r][c]) {
-                    lattice[r][c].addEdge(new Position(r + 1, c));
-                }
-                // Left
-                if (c > 0 && !v[r][c - 1]) {
-                    lattice[r][c].addEdge(new Position(r, c - 1));
-                }
-                // Right
-                if (c < cols - 1 && !v[r][c]) {
-                    lattice[r][c].addEdge(new Position(r, c + 1));
-                }
-            }
+    // --- walls ---
+    /** True if a horizontal segment lies between (r,c) and (r+1,c). */
+    public boolean h(int r, int c) {
+        return r >= 0 && r < rows - 1 && c >= 0 && c < cols && bit(hBits, r * cols + c);
+    }
+    /** True if a vertical segment lies between (r,c) and (r,c+1). */
+    public boolean v(int r, int c) {
+        return r >= 0 && r < rows && c >= 0 && c < cols - 1 && bit(vBits, r * cols + c);
+    }
+
+    /** Neighbor of cell i in direction d (0 up, 1 down, 2 left, 3 right) if no wall is in between, else -1. */
+    int step(int i, int d) {
+        switch (d) {
+            case 0:  return (i >= cols && !bit(hBits, i - cols)) ? i - cols : -1;
+            case 1:  return (i + cols < rows * cols && !bit(hBits, i)) ? i + cols : -1;
+            case 2:  return (i % cols > 0 && !bit(vBits, i - 1)) ? i - 1 : -1;
+            default: return (i % cols < cols - 1 && !bit(vBits, i)) ? i + 1 : -1;
+        }
+    }
+
+    /**
+     * Place a horizontal wall anchored at (r,c): segments (r,c) and (r,c+1).
+     * Only the (at most four) Tiles on either side of the cut edges are touched,
+     * and only when the lattice has been materialized.
+     */
+    void putWallH(int r, int c) {
+        setBit(hBits, r * cols + c);
+        if (c + 1 < cols) setBit(hBits, r * cols + c + 1);
+        touchH(r, c, true);
+    }
+    /** Place a vertical wall anchored at (r,c): segments (r,c) and (r+1,c). Same O(1) update. */
+    void putWallV(int r, int c) {
+        setBit(vBits, r * cols + c);
+        if (r + 1 < rows) setBit(vBits, (r + 1) * cols + c);
+        touchV(r, c, true);
+    }
+
+    /** Inverse of putWallH (used by undo; assumes the wall was placed whole). */
+    void removeWallH(int r, int c) {
+        clearBit(hBits, r * cols + c);
+        if (c + 1 < cols) clearBit(hBits, r * cols + c + 1);
+        touchH(r, c, false);
+    }
+    /** Inverse of putWallV. */
+    void removeWallV(int r, int c) {
+        clearBit(vBits, r * cols + c);
+        if (r + 1 < rows) clearBit(vBits, (r + 1) * cols + c);
+        touchV(r, c, false);
+    }
+
+    /** Refresh what derives from the walls around a horizontal wall at (r,c). */
+    private void touchH(int r, int c, boolean placed) {
+        repairDistances(r, c, placed);
+        if (lattice == null) return;
+        refreshTile(r, c);
+        refreshTile(r + 1, c);
+        if (c + 1 < cols) {
+            refreshTile(r, c + 1);
+            refreshTile(r + 1, c + 1);
+        }
+    }
+    /** Refresh what derives from the walls around a vertical wall at (r,c). */
+    private void touchV(int r, int c, boolean placed) {
+        repairDistances(r, c, placed);
+        if (lattice == null) return;
+        refreshTile(r, c);
+        refreshTile(r, c + 1);
+        if (r + 1 < rows) {
+            refreshTile(r + 1, c);
+            refreshTile(r + 1, c + 1);
         }
     }
 
+    /** Incrementally repair the cached goal distances around anchor (r,c); drop them if it is on the edge. */
+    private void repairDistances(int r, int c, boolean placed) {
+        if (dist1 == null && dist2 == null) return;
+        if (r + 1 >= rows || c + 1 >= cols) { dist1 = dist2 = null; return; }
+        if (distShared) {
+            if (dist1 != null) dist1 = dist1.clone();
+            if (dist2 != null) dist2 = dist2.clone();
+            distShared = false;
+        }
+        int a = r * cols + c;
+        if (placed) {
+            if (dist1 != null) QuoridorDistances.afterCut(this, dist1, a);
+            if (dist2 != null) QuoridorDistances.afterCut(this, dist2, a);
+        } else {
+            if (dist1 != null) QuoridorDistances.afterRestore(this, dist1, a);
+            if (dist2 != null) QuoridorDistances.afterRestore(this, dist2, a);
+        }
+    }
+
+    // --- goal distances ---
+    /**
+     * Distance-to-goal map for player (1 or 2), indexed r * cols + c: the fewest steps
+     * from each cell to that player's goal row ignoring pawns, or UNREACHABLE. Built by
+     * one multi-source BFS, then repaired incrementally by wall placement and removal
+     * (pawn moves keep it). The array is live and shared; callers must not modify it.
+     */
+    public int[] goalDistances(int player) {
+        if (player == 1) {
+            if (dist1 == null) { dist1 = QuoridorDistances.compute(this, rows - 1); distMisses++; } else distHits++;
+            return dist1;
+        }
+        if (dist2 == null) { dist2 = QuoridorDistances.compute(this, 0); distMisses++; } else distHits++;
+        return dist2;
+    }
+
+    /** goalDistances calls on this state (copies count their own) answered from the kept maps. */
+    public long distanceHits() { return distHits; }
+
+    /** goalDistances calls on this state that had to build a map by full BFS. */
+    public long distanceMisses() { return distMisses; }
+
+    /** Steps from (r,c) to player's goal row, or UNREACHABLE. */
+    public int distanceToGoal(int player, int r, int c) { return goalDistances(player)[r * cols + c]; }
+
+    /** Steps from player's pawn to its goal row, or UNREACHABLE. */
+    public int distanceToGoal(int player) {
+        Position p = (player == 1) ? p1 : p2;
+        return goalDistances(player)[p.r * cols + p.c];
+    }
+
     // --- Board<Piece> (render-only for pawns) ---
     @Override public int rows() { return rows; }
     @Override public int cols() { return cols; }
-    @Override public Piece get(int r, int c) { return cells[r][c]; }
-    @Override public void set(int r, int c, Piece value) { cells[r][c] = value; }
+    @Override public Piece get(int r, int c) {
+        if (extra != null && extra[r][c] != null) return extra[r][c];
+        if (p1.r == r && p1.c == c) return PAWN1;
+        if (p2.r == r && p2.c == c) return PAWN2;
+        return null;
+    }
+    @Override public void set(int r, int c, Piece value) {
+        if (extra == null) {
+            if (value == null) return;
+            extra = new Piece[rows][cols];
+        }
+        extra[r][c] = value;
+    }
 
     public Position currentPawn() { return (turn == 1) ? p1 : p2; }
     public Position otherPawn()   { return (turn == 1) ? p2 : p1; }
 
     public boolean inBounds(int r, int c) { return r >= 0 && r < rows && c >= 0 && c < cols; }
 
-    public QuoridorState copy() {
-        QuoridorState s = new QuoridorState(rows, cols);
-        // copy walls
-        for (int r = 0; r < Math.max(rows - 1, 0); r++) s.h[r] = Arrays.copyOf(h[r], cols);
-        for (int r = 0; r < rows; r++)                 s.v[r] = Arrays.copyOf(v[r], Math.max(cols - 1, 0));
+    public QuoridorState copy() { return new QuoridorState(this); }
 
-        // copy pawns/walls/turn
-        s.clearCells();
-        s.p1 = new Position(p1.r, p1.c);
-        s.p2 = new Position(p2.r, p2.c);
-        s.walls1 = walls1;
-        s.walls2 = walls2;
-        s.turn = turn;
+    /**
+     * 64-bit Zobrist hash over pawn cells, wall segments, remaining wall counts and side
+     * to move. QuoridorRules updates it incrementally; code that assigns the public
+     * fields directly must call rehash() afterwards.
+     */
+    public long hash() { return hash; }
 
-        s.set(s.p1.r, s.p1.c, new PawnPiece(1, "1"));
-        s.set(s.p2.r, s.p2.c, new PawnPiece(2, "2"));
+    /** Recompute the hash from scratch (after editing fields by hand). */
+    public void rehash() { hash = zobrist.hash(this); }
 
-        s.rebuildGraphNeighbors();
-        return s;
+    @Override public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof QuoridorState)) return false;
+        QuoridorState s = (QuoridorState) o;
+        return rows == s.rows && cols == s.cols
+                && turn == s.turn && walls1 == s.walls1 && walls2 == s.walls2
+                && p1.r == s.p1.r && p1.c == s.p1.c && p2.r == s.p2.r && p2.c == s.p2.c
+                && Arrays.equals(hBits, s.hBits) && Arrays.equals(vBits, s.vBits);
     }
 
-    private void clearCells() {
-        for (int r = 0; r < rows; r++) Arrays.fill(cells[r], null);
+    @Override public int hashCode() {
+        long x = ((long) (p1.r * cols + p1.c) << 32) ^ ((long) (p2.r * cols + p2.c) << 16)
+                ^ ((long) walls1 << 8) ^ ((long) walls2 << 1) ^ turn;
+        for (int i = 0; i < hBits.length; i++) x = x * 0x9E3779B97F4A7C15L ^ hBits[i];
+        for (int i = 0; i < vBits.length; i++) x = x * 0x9E3779B97F4A7C15L ^ vBits[i];
+        return (int) (x ^ (x >>> 32));
     }
 
     /** Store wall pieces **/
     public WallPiece hPiece(int r, int c) { // horizontal segment under row r, col c
-        return (r >= 0 && r < rows - 1 && c >= 0 && c < cols && h[r][c]) ? WallPiece.H() : null;
+        return h(r, c) ? WallPiece.H() : null;
     }
     public WallPiece vPiece(int r, int c) { // vertical segment right of row r, col c
-        return (r >= 0 && r < rows && c >= 0 && c < cols - 1 && v[r][c]) ? WallPiece.V() : null;
+        return v(r, c) ? WallPiece.V() : null;
     }
 }
@@ -0,0 +1,77 @@
+package puzzles.quoridor;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size transposition table for Quoridor search, keyed by QuoridorState.hash().
+ *
+ * Entries live in one preallocated long[] as pairs (key ^ data, data), so there are
+ * no per-entry objects. Threads read and write without locks: a write that races
+ * with another write or read shows up as a key mismatch after the XOR and is treated
+ * as a miss (lockless hashing). The data word packs
+ *   bits  0-31  score (signed)
+ *   bits 32-51  best action code + 1 (0 = none), see QuoridorActionTable
+ *   bits 52-59  depth (0..255)
+ *   bits 60-61  bound (LOWER, UPPER, EXACT)
+ *   bits 62-63  search generation
+ * Replacement is depth-preferred: an entry from the current search is only replaced
+ * by the same position or an equal-or-deeper result. Entries from older searches
+ * (see newSearch) are always replaceable.
+ */
+public final class QuoridorTranspositionTable {
+    public static final int LOWER = 1;  // score is a lower bound (fail high)
+    public static final int UPPER = 2;  // score is an upper bound (fail low)
+    public static final int EXACT = 3;
+
+    private final long[] table;
+    private final int mask;
+    private volatile int generation;
+
+    /** Table with the largest power-of-two entry count that fits in megabytes (16 bytes each). */
+    public QuoridorTranspositionTable(int megabytes) {
+        long entries = Math.max(1L, ((long) megabytes << 20) / 16);
+        int pow = 63 - Long.numberOfLeadingZeros(entries);
+        int size = 1 << Math.min(pow, 29);
+        this.table = new long[2 * size];
+        this.mask = size - 1;
+    }
+
+    /** Start a new search: older entries become replaceable regardless of depth. */
+    public void newSearch() { generation = (generation + 1) & 3; }
+
+    public void clear() { Arrays.fill(table, 0L); }
+
+    /** Number of entries (slots) in the table. */
+    public int capacity() { return mask + 1; }
+
+    /** Packed data word for key, or 0 on a miss. Decode with score/move/depth/bound. */
+    public long probe(long key) {
+        int i = index(key);
+        long check = table[i], data = table[i + 1];
+        return (data != 0 && (check ^ data) == key) ? data : 0L;
+    }
+
+    /** Store a search result; move is an action code or -1. */
+    public void store(long key, int move, int depth, int bound, int score) {
+        int i = index(key);
+        long check = table[i], old = table[i + 1];
+        int gen = generation;
+        if (old != 0 && (check ^ old) != key && generation(old) == gen && depth < depth(old)) return;
+        if (move < 0 && (check ^ old) == key && old != 0) move = move(old); // keep the known best move
+        long data = (score & 0xFFFFFFFFL)
+                | ((long) ((move + 1) & 0xFFFFF) << 32)
+                | ((long) Math.max(0, Math.min(depth, 255)) << 52)
+                | ((long) (bound & 3) << 60)
+                | ((long) gen << 62);
+        table[i] = key ^ data;
+        table[i + 1] = data;
+    }
+
+    public static int score(long data) { return (int) data; }
+    public static int move(long data)  { return (int) ((data >>> 32) & 0xFFFFF) - 1; }
+    public static int depth(long data) { return (int) ((data >>> 52) & 0xFF); }
+    public static int bound(long data) { return (int) ((data >>> 60) & 3); }
+    private static int generation(long data) { return (int) (data >>> 62); }
+
+    private int index(long key) { return (int) ((key ^ (key >>> 32)) & mask) << 1; }
+}
@@ -0,0 +1,161 @@
+package puzzles.quoridor;
+
+import game.core.Position;
+
+import java.util.Arrays;
+
+/**
+ * Candidate walls for search: the few walls worth trying out of every legal anchor.
+ * A wall is a candidate if it
+ *   - cuts an edge of the opponent's shortest-path DAG (the union of all its shortest
+ *     paths; a wall that misses it cannot lengthen the opponent's path),
+ *   - touches an existing wall at a corner, extending or closing a barrier, or
+ *   - covers an edge of either pawn's cell.
+ * Candidates are ranked by how much they lengthen the opponent's path, measured by
+ * placing the wall with applyInPlace and reading the incrementally repaired goal
+ * distance, with the mover's own lengthening as the tie-breaker.
+ *
+ * Instances keep scratch bitsets and borrow a QuoridorRules, so use one per thread.
+ */
+public final class QuoridorWallCandidates {
+    private final QuoridorRules rules;
+
+    // Opponent's shortest-path DAG as segment bitsets (see QuoridorState.hBits / vBits)
+    private long[] dagH = new long[0], dagV = new long[0];
+    // Wall corners in use, (rows + 1) x (cols + 1) lattice points, bit index r * (cols + 1) + c
+    private long[] corners = new long[0];
+    private int[] seen = new int[0], stack = new int[0];
+    private int stamp;
+    private int[] keys = new int[0];
+
+    public QuoridorWallCandidates() { this(new QuoridorRules()); }
+
+    /** Candidates that play walls through rules (whose search scratch they then share). */
+    QuoridorWallCandidates(QuoridorRules rules) { this.rules = rules; }
+
+    /** Candidate walls for the side to move in s, best first, into out (length >= maxActions). */
+    public int candidates(QuoridorState s, int[] out) {
+        int n = rules.legalActionCodes(s, out);
+        if (keys.length < out.length) keys = new int[out.length];
+        n = filter(s, out, n, keys, CANDIDATES);
+        QuoridorActionTable table = rules.table(s);
+        int walls = 0;
+        for (int k = 0; k < n; k++) {
+            if (table.isMove(out[k])) continue;
+            out[walls] = out[k];
+            keys[walls++] = keys[k];
+        }
+        for (int k = 1; k < walls; k++) { // insertion sort, highest key first
+            int code = out[k], key = keys[k], i = k - 1;
+            for (; i >= 0 && keys[i] < key; i--) { out[i + 1] = out[i]; keys[i + 1] = keys[i]; }
+            out[i + 1] = code;
+            keys[i + 1] = key;
+        }
+        return walls;
+    }
+
+    /** filter modes: every candidate, only walls cutting the opponent's DAG, only walls that lengthen its path. */
+    public static final int CANDIDATES = 0, CUTTING = 1, LENGTHENING = 2;
+
+    /**
+     * Compact a legal action list codes[0..n) for s to its pawn moves plus the walls
+     * selected by mode, and return the new length. If keys is non-null, each kept wall's
+     * key is set to its rank (64 * opponent's gain - mover's own gain); pawn move keys are
+     * left to the caller. Walls are only measured when a key or LENGTHENING needs it.
+     */
+    public int filter(QuoridorState s, int[] codes, int n, int[] keys, int mode) {
+        int left = (s.turn == 1) ? s.walls1 : s.walls2;
+        if (left == 0) return n;
+        QuoridorActionTable table = rules.table(s);
+        int me = s.turn, them = 3 - me, rows = s.rows, cols = s.cols, cells = rows * cols;
+        markDag(s, them);
+        if (mode == CANDIDATES) markCorners(s);
+        int p1 = s.p1.r * cols + s.p1.c, p2 = s.p2.r * cols + s.p2.c;
+        int oppBefore = s.distanceToGoal(them), myBefore = s.distanceToGoal(me), kept = 0;
+        for (int k = 0; k < n; k++) {
+            int code = codes[k];
+            if (!table.isMove(code)) {
+                int a = table.cell(code), r = a / cols, c = a - r * cols;
+                boolean horizontal = code < 2 * cells;
+                boolean cuts = horizontal
+                        ? QuoridorState.bit(dagH, a) || QuoridorState.bit(dagH, a + 1)
+                        : QuoridorState.bit(dagV, a) || QuoridorState.bit(dagV, a + cols);
+                if (!cuts && (mode != CANDIDATES
+                        || !(touches(r, c, horizontal, cols) || nextTo(a, p1, cols) || nextTo(a, p2, cols)))) {
+                    continue;
+                }
+                if (cuts && (keys != null || mode == LENGTHENING)) {
+                    long rec = rules.applyInPlace(s, table.action(code));
+                    int gain = s.distanceToGoal(them) - oppBefore, cost = s.distanceToGoal(me) - myBefore;
+                    rules.undo(s, rec);
+                    if (mode == LENGTHENING && gain <= 0) continue;
+                    if (keys != null) keys[kept] = 64 * gain - cost;
+                } else if (keys != null) {
+                    keys[kept] = 0; // misses the opponent's shortest paths: no gain
+                }
+            }
+            codes[kept++] = code;
+        }
+        return kept;
+    }
+
+    /** True if pawn cell p is one of the four cells whose edges the wall anchored at cell a covers. */
+    private static boolean nextTo(int a, int p, int cols) {
+        return p == a || p == a + 1 || p == a + cols || p == a + cols + 1;
+    }
+
+    /** True if the wall anchored at (r,c) shares a lattice point with an existing wall. */
+    private boolean touches(int r, int c, boolean horizontal, int cols) {
+        int w = cols + 1;
+        if (horizontal) { // points (r+1, c..c+2)
+            int p = (r + 1) * w + c;
+            return QuoridorState.bit(corners, p) || QuoridorState.bit(corners, p + 1) || QuoridorState.bit(corners, p + 2);
+        }
+        int p = r * w + c + 1; // points (r..r+2, c+1)
+        return QuoridorState.bit(corners, p) || QuoridorState.bit(corners, p + w) || QuoridorState.bit(corners, p + 2 * w);
+    }
+
+    /** Mark both end points of every wall segment on the board. */
+    private void markCorners(QuoridorState s) {
+        int rows = s.rows, cols = s.cols, w = cols + 1;
+        int words = QuoridorState.wordsFor((rows + 1) * w);
+        if (corners.length != words) corners = new long[words];
+        Arrays.fill(corners, 0L);
+        for (int i = 0; i < rows * cols; i++) {
+            int r = i / cols, c = i - r * cols;
+            if (QuoridorState.bit(s.hBits, i)) { // under (r,c): points (r+1, c) and (r+1, c+1)
+                QuoridorState.setBit(corners, (r + 1) * w + c);
+                QuoridorState.setBit(corners, (r + 1) * w + c + 1);
+            }
+            if (QuoridorState.bit(s.vBits, i)) { // right of (r,c): points (r, c+1) and (r+1, c+1)
+                QuoridorState.setBit(corners, r * w + c + 1);
+                QuoridorState.setBit(corners, (r + 1) * w + c + 1);
+            }
+        }
+    }
+
+    /** Mark in dagH / dagV every segment crossed by some shortest path of player to its goal row. */
+    private void markDag(QuoridorState s, int player) {
+        int cells = s.rows * s.cols, words = s.hBits.length;
+        if (dagH.length != words) { dagH = new long[words]; dagV = new long[words]; }
+        Arrays.fill(dagH, 0L);
+        Arrays.fill(dagV, 0L);
+        if (seen.length < cells) { seen = new int[cells]; stack = new int[cells]; stamp = 0; }
+        if (++stamp == 0) { Arrays.fill(seen, 0); stamp = 1; }
+        int[] dist = s.goalDistances(player);
+        Position p = (player == 1) ? s.p1 : s.p2;
+        int top = 0, start = p.r * s.cols + p.c;
+        if (dist[start] == QuoridorState.UNREACHABLE) return;
+        stack[top++] = start;
+        seen[start] = stamp;
+        while (top > 0) {
+            int i = stack[--top];
+            for (int d = 0; d < 4; d++) {
+                int j = s.step(i, d);
+                if (j < 0 || dist[j] != dist[i] - 1) continue;
+                if (d < 2) QuoridorState.setBit(dagH, Math.min(i, j)); else QuoridorState.setBit(dagV, Math.min(i, j));
+                if (seen[j] != stamp) { seen[j] = stamp; stack[top++] = j; }
+            }
+        }
+    }
+}
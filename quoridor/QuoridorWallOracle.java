@@ -0,0 +1,163 @@
+package puzzles.quoridor;
+
+import java.util.Arrays;
+
+/**
+ * Bulk wall-legality oracle: one analysis pass per pawn classifies every wall anchor
+ * as path-safe or possibly path-blocking, instead of one BFS per candidate.
+ *
+ * For each pawn the cell graph is extended with a super node joined to the pawn's goal
+ * row and searched once with a DFS rooted there. Every non-tree edge gets a random
+ * 64-bit label and every tree edge the XOR of the labels of the non-tree edges that
+ * span it. Then a tree edge with label 0 is a bridge, and two edges form a 2-edge cut
+ * only if their labels are equal. Whether a cut separates the pawn from the root
+ * follows from DFS entry/exit times. A wall removes exactly two edges, so it can only
+ * block a pawn through a bridge or such a pair.
+ *
+ * "Safe" answers are exact. "May block" answers are exact unless two labels collide
+ * (probability about 2^-64 per pair), so callers confirm them with a BFS.
+ *
+ * Instances hold scratch arrays and are not thread-safe.
+ */
+public final class QuoridorWallOracle {
+    private int rows, cols, n;               // n = rows * cols; node n is the goal super node
+    private int[] tin = new int[0], tout = new int[0], parent = new int[0], next = new int[0], stack = new int[0];
+    private long[] acc = new long[0];        // per node: XOR of incident back-edge labels, then subtree XOR
+    private long[] hLabel = new long[0], vLabel = new long[0]; // per segment (r * cols + c)
+    private int[] hChild = new int[0], vChild = new int[0];    // tree edge: child endpoint; non-tree: -1
+    private long[] blockH = new long[0], blockV = new long[0]; // per anchor: may block some pawn
+    private long seed;
+
+    /** Analyze s's current walls; afterwards mayBlockH / mayBlockV answer for every anchor. */
+    public void analyze(QuoridorState s) {
+        ensure(s);
+        Arrays.fill(blockH, 0L);
+        Arrays.fill(blockV, 0L);
+        markPawn(s, s.p1.r * cols + s.p1.c, rows - 1);
+        markPawn(s, s.p2.r * cols + s.p2.c, 0);
+    }
+
+    /** False means a horizontal wall at anchor (r,c) certainly leaves both pawns a path. */
+    public boolean mayBlockH(int r, int c) { return QuoridorState.bit(blockH, r * cols + c); }
+    /** False means a vertical wall at anchor (r,c) certainly leaves both pawns a path. */
+    public boolean mayBlockV(int r, int c) { return QuoridorState.bit(blockV, r * cols + c); }
+
+    private void ensure(QuoridorState s) {
+        rows = s.rows; cols = s.cols; n = rows * cols;
+        if (tin.length < n + 1) {
+            tin = new int[n + 1]; tout = new int[n + 1]; parent = new int[n + 1];
+            next = new int[n + 1]; stack = new int[n + 1]; acc = new long[n + 1];
+            hLabel = new long[n]; vLabel = new long[n]; hChild = new int[n]; vChild = new int[n];
+        }
+        if (blockH.length != s.hBits.length) {
+            blockH = new long[s.hBits.length];
+            blockV = new long[s.hBits.length];
+        }
+    }
+
+    /** DFS from the super node of goalRow, then flag every anchor whose wall may cut pawn off. */
+    private void markPawn(QuoridorState s, int pawn, int goalRow) {
+        seed = 0x9E3779B97F4A7C15L * (goalRow + 1);
+        dfs(s, goalRow);
+        if (tin[pawn] < 0) { // pawn already cut off: nothing is safe
+            Arrays.fill(blockH, -1L);
+            Arrays.fill(blockV, -1L);
+            return;
+        }
+        for (int r = 0; r < rows - 1; r++) {
+            for (int c = 0; c < cols - 1; c++) {
+                int a = r * cols + c;
+                if (cuts(pawn, a, true, a + 1, true)) QuoridorState.setBit(blockH, a);
+                if (cuts(pawn, a, false, a + cols, false)) QuoridorState.setBit(blockV, a);
+            }
+        }
+    }
+
+    /** Would removing segments e1 and e2 (both h or both v) separate pawn from the root? */
+    private boolean cuts(int pawn, int e1, boolean horiz1, int e2, boolean horiz2) {
+        int u1 = horiz1 ? hChild[e1] : vChild[e1], u2 = horiz2 ? hChild[e2] : vChild[e2];
+        long l1 = horiz1 ? hLabel[e1] : vLabel[e1], l2 = horiz2 ? hLabel[e2] : vLabel[e2];
+        boolean live1 = live(e1, horiz1), live2 = live(e2, horiz2);
+        if (live1 && u1 >= 0 && l1 == 0 && inSubtree(pawn, u1)) return true; // bridge
+        if (live2 && u2 >= 0 && l2 == 0 && inSubtree(pawn, u2)) return true;
+        if (!live1 || !live2 || l1 != l2 || l1 == 0) return false;
+        if (u1 >= 0 && u2 >= 0) {
+            if (inSubtree(u1, u2)) { int t = u1; u1 = u2; u2 = t; } // make u1 the ancestor
+            if (!inSubtree(u2, u1)) return false;
+            return inSubtree(pawn, u1) && !inSubtree(pawn, u2);
+        }
+        if (u1 >= 0) return inSubtree(pawn, u1);
+        if (u2 >= 0) return inSubtree(pawn, u2);
+        return false;
+    }
+
+    /** Segment is an open edge inside the root's component (walls and unreached cells are not). */
+    private boolean live(int seg, boolean horiz) {
+        return horiz ? hChild[seg] >= 0 || hLabel[seg] != -1L : vChild[seg] >= 0 || vLabel[seg] != -1L;
+    }
+
+    private boolean inSubtree(int x, int u) { return tin[u] <= tin[x] && tin[x] < tout[u]; }
+
+    /** Iterative DFS over cells plus super node n; fills tin/tout, tree children and edge labels. */
+    private void dfs(QuoridorState s, int goalRow) {
+        Arrays.fill(tin, 0, n + 1, -1);
+        Arrays.fill(acc, 0, n + 1, 0L);
+        Arrays.fill(hLabel, 0, n, -1L);  // -1 marks "no open edge seen" until labelled
+        Arrays.fill(vLabel, 0, n, -1L);
+        Arrays.fill(hChild, 0, n, -1);
+        Arrays.fill(vChild, 0, n, -1);
+        int time = 0, sp = 0, goalLo = goalRow * cols;
+        stack[sp++] = n; tin[n] = time++; parent[n] = -1; next[n] = 0;
+        while (sp > 0) {
+            int u = stack[sp - 1];
+            int w = -1;
+            // Enumerate u's neighbors lazily: super node -> goal cells; cell -> 4 steps then super node
+            while (w < 0) {
+                int k = next[u]++;
+                if (u == n) {
+                    if (k >= cols) break;
+                    w = goalLo + k;
+                } else if (k < 4) {
+                    w = s.step(u, k);
+                } else if (k == 4 && u >= goalLo && u < goalLo + cols) {
+                    w = n;
+                } else break;
+                if (w < 0) continue;
+                if (w == parent[u]) { w = -1; continue; }
+                if (tin[w] >= 0) {
+                    if (tin[w] < tin[u]) backEdge(u, w); // seen from the descendant end only
+                    w = -1;
+                }
+            }
+            if (w < 0) { // u finished: fold its subtree XOR into the tree edge to its parent
+                sp--;
+                tout[u] = time;
+                int p = parent[u];
+                if (p >= 0) {
+                    setTree(u, p);
+                    acc[p] ^= acc[u];
+                }
+                continue;
+            }
+            tin[w] = time++; parent[w] = u; next[w] = 0;
+            stack[sp++] = w;
+        }
+    }
+
+    private void backEdge(int u, int w) {
+        long label;
+        do { label = QuoridorZobrist.mix(++seed); } while (label == 0 || label == -1L);
+        acc[u] ^= label;
+        acc[w] ^= label;
+        if (u != n && w != n) {
+            if (Math.abs(u - w) == cols) hLabel[Math.min(u, w)] = label; else vLabel[Math.min(u, w)] = label;
+        }
+    }
+
+    private void setTree(int u, int p) {
+        if (u == n || p == n) return; // super-node edges are never removed
+        int seg = Math.min(u, p);
+        if (Math.abs(u - p) == cols) { hLabel[seg] = acc[u]; hChild[seg] = u; }
+        else { vLabel[seg] = acc[u]; vChild[seg] = u; }
+    }
+}
@@ -0,0 +1,170 @@
+package puzzles.quoridor;
+
+/**
+ * Solver for one-sided wall endgames: exactly one player (the holder) has walls left.
+ *
+ * The other player can only race, so the holder's best walls are usually the ones that
+ * lengthen the racer's path: the holder first tries its pawn moves and the walls that
+ * actually raise the racer's goal distance (QuoridorWallCandidates.filter in
+ * LENGTHENING mode), a handful instead of the full set of anchors.
+ *
+ * solve runs an iterative-deepening proof search: the racer tries every pawn move,
+ * the holder those first moves. The holder may always stop placing walls, so a
+ * position whose wall-less race (QuoridorEndgame on the current layout) the holder
+ * wins is a proven holder win; positions with no walls left on either side are
+ * answered exactly the same way. Results are WIN, LOSS or UNKNOWN for the side to
+ * move, and proven results are kept in a transposition table across calls. Both
+ * directions are exact: a holder win needs one winning move, and a holder loss (a
+ * racer win) is only reported once every legal wall has been searched too, since a
+ * wall that leaves the racer's distance unchanged can still prepare a winning one.
+ * Races on layouts not solved yet are only solved while the time budget allows, and
+ * boards too large for QuoridorEndgame are not attempted (UNKNOWN).
+ *
+ * Instances keep search scratch, so use one per thread.
+ */
+public final class QuoridorWallRace {
+    public static final int WIN = 1, UNKNOWN = 0, LOSS = -1;
+
+    private static final int MAX_PLY = 64;
+
+    private final QuoridorRules rules = new QuoridorRules();
+    private final QuoridorEndgame endgame = new QuoridorEndgame();
+    private final QuoridorWallCandidates candidates = new QuoridorWallCandidates(rules);
+    private final QuoridorTranspositionTable tt;
+    private QuoridorActionTable table;
+    private int[][] moves = new int[0][];
+    private int[][] order = new int[0][];
+
+    private long nodes, maxNodes, deadline;
+    private boolean outOfBudget;
+    private int lastMove = -1, lastPlies;
+
+    public QuoridorWallRace() { this(4); }
+
+    /** Solver whose proven results are kept in a table of ttMegabytes. */
+    public QuoridorWallRace(int ttMegabytes) { this.tt = new QuoridorTranspositionTable(ttMegabytes); }
+
+    /** True when exactly one player has walls left. */
+    public static boolean applies(QuoridorState s) { return (s.walls1 == 0) != (s.walls2 == 0); }
+
+    /** Winning move found by the last solve that returned WIN, else its first candidate. */
+    public QuoridorAction lastMove() { return (lastMove < 0) ? null : table.action(lastMove); }
+    /** Search horizon (plies) at which the last solve reached its result. */
+    public int lastPlies() { return lastPlies; }
+    /** Nodes visited by the last solve. */
+    public long lastNodes() { return nodes; }
+
+    /**
+     * Outcome for the side to move in s (which must satisfy applies): WIN, LOSS, or
+     * UNKNOWN if nothing was proven within maxNodes nodes and maxMillis milliseconds.
+     */
+    public int solve(QuoridorState s, long maxNodes, long maxMillis) {
+        QuoridorState pos = s.copy();
+        table = rules.table(pos);
+        int width = QuoridorRules.maxActions(pos.rows, pos.cols);
+        if (moves.length == 0 || moves[0].length < width) {
+            moves = new int[MAX_PLY][width];
+            order = new int[MAX_PLY][width];
+        }
+        this.nodes = 0;
+        this.maxNodes = maxNodes;
+        this.deadline = System.nanoTime() + maxMillis * 1000000L;
+        this.outOfBudget = false;
+        this.lastMove = -1;
+        this.lastPlies = 0;
+        if (rules.isTerminal(pos)) return LOSS;
+        if (!QuoridorEndgame.fits(pos)) return UNKNOWN;
+        for (int depth = 1; depth < MAX_PLY; depth++) {
+            int r = prove(pos, depth, 0);
+            lastPlies = depth;
+            if (r != UNKNOWN || outOfBudget) return r;
+        }
+        return UNKNOWN;
+    }
+
+    /** WIN / LOSS / UNKNOWN for the side to move within depth plies (or exactly, at wall-less leaves). */
+    private int prove(QuoridorState s, int depth, int ply) {
+        if ((++nodes & 255) == 0 && System.nanoTime() > deadline) outOfBudget = true;
+        if (outOfBudget || nodes > maxNodes) { outOfBudget = true; return UNKNOWN; }
+        if (rules.isTerminal(s)) return LOSS;
+        if (s.walls1 == 0 && s.walls2 == 0) { // DRAW == UNKNOWN
+            if (endgame.ready(s, deadline)) return endgame.outcome(s);
+            outOfBudget = true;
+            return UNKNOWN;
+        }
+        // The holder can always just race, so a race the holder wins is a proven win. Solving
+        // a new layout's race costs far more than a node, so inner nodes only use cached ones.
+        if (endgame.cached(s) || ((ply == 0 || depth == 0) && endgame.ready(s, deadline))) {
+            int race = endgame.outcome(s);
+            int holder = (s.walls1 != 0) ? 1 : 2;
+            if (race == ((s.turn == holder) ? WIN : LOSS)) {
+                if (ply == 0 && race == WIN) lastMove = table.code(endgame.bestMove(s));
+                return race;
+            }
+        }
+        if (depth == 0) return UNKNOWN;
+
+        long key = s.hash();
+        long e = tt.probe(key);
+        if (e != 0) {
+            int known = QuoridorTranspositionTable.score(e);
+            if (QuoridorTranspositionTable.bound(e) == QuoridorTranspositionTable.EXACT) {
+                if (ply == 0) lastMove = QuoridorTranspositionTable.move(e);
+                if (ply > 0 || lastMove >= 0) return known;
+            } else if (QuoridorTranspositionTable.depth(e) >= depth) {
+                return UNKNOWN;
+            }
+        }
+
+        int[] list = moves[ply], keys = order[ply];
+        int legal = rules.legalActionCodes(s, list);
+        int n = candidates.filter(s, list, legal, keys, QuoridorWallCandidates.LENGTHENING);
+        int[] dist = s.goalDistances(s.turn);
+        for (int k = 0; k < n; k++) if (table.isMove(list[k])) keys[k] = 1000 - dist[table.cell(list[k])];
+        if (ply == 0 && n > 0) lastMove = list[0];
+
+        boolean allLost = true;
+        for (int k = 0; k < n; k++) {
+            int bi = k;
+            for (int i = k + 1; i < n; i++) if (keys[i] > keys[bi]) bi = i;
+            int m = list[bi];
+            list[bi] = list[k]; list[k] = m;
+            int t = keys[bi]; keys[bi] = keys[k]; keys[k] = t;
+
+            long rec = rules.applyInPlace(s, table.action(m));
+            int r = -prove(s, depth - 1, ply + 1);
+            rules.undo(s, rec);
+            if (r == WIN) {
+                if (ply == 0) lastMove = m;
+                tt.store(key, m, 255, QuoridorTranspositionTable.EXACT, WIN);
+                return WIN;
+            }
+            if (r != LOSS) allLost = false;
+        }
+        if (allLost && n < legal && !outOfBudget) { // a loss must also hold against the pruned walls
+            int racer = 3 - s.turn, before = s.distanceToGoal(racer);
+            n = rules.legalActionCodes(s, list);
+            for (int k = 0; k < n && allLost; k++) {
+                int m = list[k];
+                if (table.isMove(m)) continue;
+                long rec = rules.applyInPlace(s, table.action(m));
+                // lengthening walls were searched above
+                int r = (s.distanceToGoal(racer) > before) ? LOSS : -prove(s, depth - 1, ply + 1);
+                rules.undo(s, rec);
+                if (r == WIN) {
+                    if (ply == 0) lastMove = m;
+                    tt.store(key, m, 255, QuoridorTranspositionTable.EXACT, WIN);
+                    return WIN;
+                }
+                if (r != LOSS) allLost = false;
+            }
+        }
+        if (outOfBudget) return UNKNOWN;
+        if (allLost) {
+            tt.store(key, -1, 255, QuoridorTranspositionTable.EXACT, LOSS);
+            return LOSS;
+        }
+        tt.store(key, -1, depth, QuoridorTranspositionTable.LOWER, UNKNOWN);
+        return UNKNOWN;
+    }
+}
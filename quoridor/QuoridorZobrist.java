@@ -0,0 +1,62 @@
+package puzzles.quoridor;
+
+/**
+ * 64-bit Zobrist keys for one board size: one key per pawn cell and player, one per
+ * horizontal / vertical wall segment, one per (player, remaining wall count) and one
+ * for "P2 to move". A position's hash is the XOR of the keys of its features, so
+ * QuoridorRules can update it with a few XORs per move. Keys are deterministic, so
+ * hashes are stable across runs and processes.
+ */
+public final class QuoridorZobrist {
+    public final int rows;
+    public final int cols;
+    final long[] pawn1, pawn2, hSeg, vSeg;
+    final long turn2;
+    private final long wallSalt;
+
+    /** Built once per board size by QuoridorPositions. */
+    QuoridorZobrist(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        int n = rows * cols;
+        long seed = 0x51A7E5EEDL ^ (((long) rows << 32) | cols);
+        pawn1 = new long[n]; pawn2 = new long[n]; hSeg = new long[n]; vSeg = new long[n];
+        for (int i = 0; i < n; i++) {
+            pawn1[i] = mix(seed += 0x9E3779B97F4A7C15L);
+            pawn2[i] = mix(seed += 0x9E3779B97F4A7C15L);
+            hSeg[i]  = mix(seed += 0x9E3779B97F4A7C15L);
+            vSeg[i]  = mix(seed += 0x9E3779B97F4A7C15L);
+        }
+        turn2 = mix(seed += 0x9E3779B97F4A7C15L);
+        wallSalt = mix(seed + 0x9E3779B97F4A7C15L);
+    }
+
+    /** Shared keys for a board size (see QuoridorPositions.of). */
+    public static QuoridorZobrist of(int rows, int cols) { return QuoridorPositions.of(rows, cols).zobrist; }
+
+    /** Key for player (1 or 2) having count walls left; computed, so any count works. */
+    long walls(int player, int count) { return mix(wallSalt + (count * 2L + player) * 0x9E3779B97F4A7C15L); }
+
+    /** Key of both segments of a horizontal wall anchored at cell a. */
+    long wallH(int a) { return hSeg[a] ^ (((a + 1) % cols != 0) ? hSeg[a + 1] : 0L); }
+    /** Key of both segments of a vertical wall anchored at cell a. */
+    long wallV(int a) { return vSeg[a] ^ ((a + cols < vSeg.length) ? vSeg[a + cols] : 0L); }
+
+    /** Hash of s from scratch. */
+    long hash(QuoridorState s) {
+        long x = pawn1[s.p1.r * cols + s.p1.c] ^ pawn2[s.p2.r * cols + s.p2.c]
+                ^ walls(1, s.walls1) ^ walls(2, s.walls2);
+        if (s.turn == 2) x ^= turn2;
+        for (int i = 0; i < rows * cols; i++) {
+            if (QuoridorState.bit(s.hBits, i)) x ^= hSeg[i];
+            if (QuoridorState.bit(s.vBits, i)) x ^= vSeg[i];
+        }
+        return x;
+    }
+
+    static long mix(long z) { // SplitMix64 finalizer
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
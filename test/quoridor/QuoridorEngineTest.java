@@ -0,0 +1,32 @@
+package puzzles.quoridor;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+public class QuoridorEngineTest {
+    /**
+     * Persistent engines on a board too large for QuoridorEndgame must still finish the
+     * wall-less race: table hits used to end deepening on a stale win distance, and the
+     * two sides shuffled between the same cells forever.
+     */
+    @Test
+    public void selfPlayOn19x19Terminates() {
+        QuoridorRules rules = new QuoridorRules();
+        Random random = new Random(1);
+        for (int game = 0; game < 3; game++) {
+            QuoridorEngine p1 = new QuoridorEngine(100), p2 = new QuoridorEngine(100);
+            QuoridorState s = new QuoridorState(19, 19);
+            for (int i = 0; i < 2; i++) { // vary the openings
+                List<QuoridorAction> actions = rules.legalActions(s);
+                s = rules.apply(s, actions.get(random.nextInt(actions.size())));
+            }
+            int ply = 0;
+            for (; ply < 500 && !rules.isTerminal(s); ply++) s = rules.apply(s, ((s.turn == 1) ? p1 : p2).bestMove(s));
+            assertTrue("game " + game + " still running after " + ply + " plies", rules.isTerminal(s));
+        }
+    }
+}
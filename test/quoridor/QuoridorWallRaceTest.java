@@ -0,0 +1,105 @@
+package puzzles.quoridor;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QuoridorWallRaceTest {
+    private static final int DEPTH = 10;
+
+    private final QuoridorRules rules = new QuoridorRules();
+    private final QuoridorEndgame endgame = new QuoridorEndgame();
+    private final Map<Long, int[]> memo = new HashMap<Long, int[]>(); // hash -> {result, depth searched}
+
+    /**
+     * The racer must not be credited with a win that only holds against lengthening
+     * walls: here P1's "wall v 1 2" leaves P2's distance at 2 but wins by force.
+     */
+    @Test
+    public void preparatoryWallRefutesRacerWin() {
+        QuoridorState s = position(0, 1, 2, 3, 3, 0, 2);
+        assertEquals("negamax", QuoridorWallRace.LOSS, negamax(s, DEPTH));
+        assertNotEquals("solver", QuoridorWallRace.WIN, new QuoridorWallRace().solve(s, 1000000, 5000));
+        QuoridorEngine engine = new QuoridorEngine(200);
+        engine.bestMove(s);
+        assertTrue("engine claims a win", engine.lastScore() < QuoridorEngine.MATE);
+    }
+
+    /** Every result solve proves on small random one-sided endgames agrees with full-width negamax. */
+    @Test
+    public void agreesWithFullWidthNegamax() {
+        Random random = new Random(5);
+        int solved = 0;
+        for (int i = 0; i < 1000; i++) {
+            QuoridorState s = randomPosition(random);
+            if (rules.isTerminal(s)) continue;
+            int claimed = new QuoridorWallRace().solve(s, 200000, 2000);
+            if (claimed == QuoridorWallRace.UNKNOWN) continue;
+            solved++;
+            int exact = negamax(s, DEPTH);
+            assertFalse("case " + i + ": solver " + claimed + ", negamax " + exact, exact == -claimed);
+        }
+        assertTrue("too few solved cases: " + solved, solved >= 500);
+    }
+
+    /** 5x5 position with P1 at (r1,c1) holding walls1, P2 at (r2,c2) holding walls2 and player turn to move. */
+    private static QuoridorState position(int r1, int c1, int walls1, int r2, int c2, int walls2, int turn) {
+        QuoridorState s = new QuoridorState(5, 5);
+        QuoridorPositions cells = QuoridorPositions.of(5, 5);
+        s.p1 = cells.at(r1, c1);
+        s.p2 = cells.at(r2, c2);
+        s.walls1 = walls1;
+        s.walls2 = walls2;
+        s.turn = turn;
+        s.rehash();
+        return s;
+    }
+
+    /** Random pawns off their goal rows, up to two walls on the board, and one side holding one or two walls. */
+    private QuoridorState randomPosition(Random random) {
+        int c1 = random.nextInt(5), c2 = random.nextInt(5), r1 = random.nextInt(4), r2 = 1 + random.nextInt(4);
+        if (r1 == r2 && c1 == c2) r2 = (r1 == 4) ? 1 : r1 + 1;
+        QuoridorState s = position(r1, c1, 4, r2, c2, 4, 1);
+        for (int w = random.nextInt(3); w > 0; w--) {
+            List<QuoridorAction> actions = rules.legalActions(s);
+            QuoridorAction a = actions.get(random.nextInt(actions.size()));
+            if (a.type != QuoridorAction.Type.MOVE) s = rules.apply(s, a);
+        }
+        boolean p1Holds = random.nextBoolean();
+        int held = 1 + random.nextInt(2);
+        s.walls1 = p1Holds ? held : 0;
+        s.walls2 = p1Holds ? 0 : held;
+        s.turn = 1 + random.nextInt(2);
+        s.rehash();
+        return s;
+    }
+
+    /** WIN / LOSS for the side to move if forced within depth plies of wall play, else UNKNOWN; wall-less races are exact. */
+    private int negamax(QuoridorState s, int depth) {
+        if (rules.isTerminal(s)) return QuoridorWallRace.LOSS;
+        if (QuoridorEndgame.applies(s)) return endgame.outcome(s); // DRAW == UNKNOWN
+        if (depth == 0) return QuoridorWallRace.UNKNOWN;
+        int[] known = memo.get(s.hash());
+        if (known != null && (known[0] != QuoridorWallRace.UNKNOWN || known[1] >= depth)) return known[0];
+        QuoridorActionTable table = rules.table(s);
+        int[] codes = new int[QuoridorRules.maxActions(s.rows, s.cols)];
+        int n = rules.legalActionCodes(s, codes);
+        int result = QuoridorWallRace.LOSS;
+        for (int k = 0; k < n && result != QuoridorWallRace.WIN; k++) {
+            long rec = rules.applyInPlace(s, table.action(codes[k]));
+            int r = -negamax(s, depth - 1);
+            rules.undo(s, rec);
+            if (r != QuoridorWallRace.LOSS) result = r; // WIN ends the loop, UNKNOWN rules out a loss
+        }
+        memo.put(s.hash(), new int[] {result, depth});
+        return result;
+    }
+}